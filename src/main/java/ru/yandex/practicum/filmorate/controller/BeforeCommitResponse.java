@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Response running an action once, right before it is committed, so the action can still add headers.
+ * The action also runs on {@link #beforeCommit()} for responses without a body.
+ */
+class BeforeCommitResponse extends HttpServletResponseWrapper {
+    private final Runnable action;
+    private boolean done;
+
+    BeforeCommitResponse(HttpServletResponse response, Runnable action) {
+        super(response);
+        this.action = action;
+    }
+
+    /**
+     * Run action unless it has run or the response is already committed.
+     */
+    void beforeCommit() {
+        if (done || isCommitted()) return;
+        done = true;
+        action.run();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        beforeCommit();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        beforeCommit();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        beforeCommit();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        beforeCommit();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        beforeCommit();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        beforeCommit();
+        super.sendRedirect(location);
+    }
+}
@@ -2,42 +2,75 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.service.BatchImporter;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.validator.FilmorateValidationErrorBuilder;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
+import java.io.IOException;
 import java.util.*;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
 @RestController
 @Slf4j
 @Validated
 public class FilmController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 100;
     private final FilmService filmService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final BatchImporter batchImporter;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, JsonStreamWriter jsonStreamWriter, BatchImporter batchImporter) {
         this.filmService = filmService;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.batchImporter = batchImporter;
     }
 
+    @QueryBudget(2)
     @GetMapping("/films")
-    public List<Film> getAllPosts() {
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllPosts(@RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) return ResponseEntity.ok(filmService.getAllFilms());
+        if (limit != null && limit <= 0) throw new ResponseStatusException(BAD_REQUEST, "Limit must be positive");
+        Page<Film> page = filmService.getFilms(after, limit != null ? limit : DEFAULT_PAGE_SIZE);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/films/stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamWriter.<Film>stream(accept, filmService::forEachFilm);
     }
 
+    @QueryBudget(2)
     @GetMapping("/films/{id}")
-    public ResponseEntity<?> getFilmById(@PathVariable int id) {
+    public ResponseEntity<?> getFilmById(@PathVariable int id, WebRequest request) {
+        Optional<Long> version = filmService.getFilmVersion(id);
+        if (version.isPresent() && request.checkNotModified("film-" + id + "-" + version.get())) return null;
         return ResponseEntity.ok(filmService.getFilmById(id));
     }
 
+    @QueryBudget(4)
     @PutMapping("/films")
     public ResponseEntity<?> updateFilm(HttpServletRequest request, @Valid @RequestBody Film film, Errors errors) {
         if (errors.hasErrors()) {
@@ -49,21 +82,48 @@ public class FilmController {
     }
 
 
+    @QueryBudget(6)
     @PutMapping("/films/{id}/like/{userId}")
     public ResponseEntity<?> addLike(@PathVariable int id, @PathVariable int userId) {
-        return ResponseEntity.ok(filmService.addLike(userId, id));
+        Film film = filmService.addLike(userId, id);
+        return film != null ? ResponseEntity.ok(film) : ResponseEntity.accepted().build();
     }
 
+    @QueryBudget(6)
     @DeleteMapping("/films/{id}/like/{userId}")
     public ResponseEntity<?> removeLike(@PathVariable int id, @PathVariable int userId) {
-        return ResponseEntity.ok(filmService.removeLike(userId, id));
+        Film film = filmService.removeLike(userId, id);
+        return film != null ? ResponseEntity.ok(film) : ResponseEntity.accepted().build();
     }
 
+    @QueryBudget(2)
     @GetMapping("/films/popular")
-    public ResponseEntity<?> getTopFilms(@Positive @RequestParam(required = false, defaultValue = "10") int count) {
-        return ResponseEntity.ok(filmService.showTopFilms(count));
+    public ResponseEntity<?> getTopFilms(@Positive @RequestParam(required = false, defaultValue = "10") int count,
+                                         @RequestParam(required = false) String after) {
+        Page<Film> page = filmService.showTopFilms(count, after);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/films/{id}/similar")
+    public ResponseEntity<?> getSimilarFilms(@PathVariable int id,
+                                             @Positive @RequestParam(required = false, defaultValue = "10") int count) {
+        return ResponseEntity.ok(filmService.showSimilarFilms(id, count));
+    }
+
+    @GetMapping("/users/{id}/recommendations")
+    public ResponseEntity<?> getRecommendedFilms(@PathVariable int id,
+                                                 @Positive @RequestParam(required = false, defaultValue = "10") int count) {
+        return ResponseEntity.ok(filmService.showRecommendedFilms(id, count));
+    }
+
+    @PostMapping(value = "/films/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ImportReport importAll(HttpServletRequest request) throws IOException {
+        return batchImporter.importAll(request.getInputStream(), Film.class, filmService::addFilms, filmService::addFilm, Film::getId);
     }
 
+    @QueryBudget(4)
     @PostMapping("/films")
     public ResponseEntity<?> create(HttpServletRequest request, @Valid @RequestBody Film film, Errors errors) {
         if (errors.hasErrors()) {
@@ -74,6 +134,7 @@ public class FilmController {
         return ResponseEntity.ok(filmService.addFilm(film));
     }
 
+    @QueryBudget(4)
     @PatchMapping("/film/{id}")
     public ResponseEntity<?> update(HttpServletRequest request, @Valid @RequestBody Film film, @PathVariable int id, Errors errors) {
         if (errors.hasErrors()) {
@@ -85,22 +146,30 @@ public class FilmController {
     }
 
     @GetMapping("/genres")
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
+        if (request.checkNotModified("genres-" + filmService.getReferenceDataVersion())) return null;
         return filmService.getAllGenres();
     }
 
     @GetMapping("/genres/{id}")
-    public ResponseEntity<?> getGenreById(@PathVariable int id) {
-        return ResponseEntity.ok(filmService.getGenreById(id));
+    public ResponseEntity<?> getGenreById(@PathVariable int id, WebRequest request) {
+        long version = filmService.getReferenceDataVersion();
+        Genre genre = filmService.getGenreById(id);
+        if (request.checkNotModified("genre-" + id + "-" + version)) return null;
+        return ResponseEntity.ok(genre);
     }
 
     @GetMapping("/mpa")
-    public List<Rating> getAllRatings() {
+    public List<Rating> getAllRatings(WebRequest request) {
+        if (request.checkNotModified("mpa-" + filmService.getReferenceDataVersion())) return null;
         return filmService.getAllRatings();
     }
 
     @GetMapping("/mpa/{id}")
-    public ResponseEntity<?> getRatingById(@PathVariable int id) {
-        return ResponseEntity.ok(filmService.getRatingById(id));
+    public ResponseEntity<?> getRatingById(@PathVariable int id, WebRequest request) {
+        long version = filmService.getReferenceDataVersion();
+        Rating rating = filmService.getRatingById(id);
+        if (request.checkNotModified("mpa-" + id + "-" + version)) return null;
+        return ResponseEntity.ok(rating);
     }
 }
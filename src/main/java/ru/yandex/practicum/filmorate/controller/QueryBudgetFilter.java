@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.storage.QueryCounter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Counts SQL statements and database time of each request, logs them and returns them in response headers.
+ * Headers are added right before the response body is written, so statements run while it is written,
+ * by streaming endpoints for example, are only logged. Statements of other threads are not counted.
+ * <p>
+ * Requests over {@link QueryBudget} of the endpoint, and storage methods which ran statements in too many
+ * calls of one request, which is how N+1 queries look, are reported. When enforced, as in tests, they fail
+ * the request with {@link IllegalStateException} after its response is written.
+ */
+@Slf4j
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+    static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    static final String QUERY_TIME_HEADER = "X-Query-Time";
+    private final boolean enforce;
+    private final int repeatedCallThreshold;
+
+    public QueryBudgetFilter(@Value("${filmorate.query-budget.enforce:false}") boolean enforce,
+                             @Value("${filmorate.query-budget.repeated-call-threshold:5}") int repeatedCallThreshold) {
+        this.enforce = enforce;
+        this.repeatedCallThreshold = repeatedCallThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryCounter counter = QueryCounter.current();
+        counter.mark();
+        counter.startTracking();
+        BeforeCommitResponse headersResponse = new BeforeCommitResponse(response, () -> {
+            response.setHeader(QUERY_COUNT_HEADER, Long.toString(counter.getStatementsSinceMark()));
+            response.setHeader(QUERY_TIME_HEADER, formatMillis(counter.getDatabaseTimeSinceMark()));
+        });
+        long statements;
+        long databaseTime;
+        Map<String, Integer> queryingCalls;
+        try {
+            filterChain.doFilter(request, headersResponse);
+        } finally {
+            statements = counter.getStatementsSinceMark();
+            databaseTime = counter.getDatabaseTimeSinceMark();
+            queryingCalls = counter.stopTracking();
+            headersResponse.beforeCommit();
+            counter.unmark();
+            log.info("{} {} -> {}: {} statements, {} ms in database", request.getMethod(), request.getRequestURI(),
+                    response.getStatus(), statements, formatMillis(databaseTime));
+        }
+        check(request, statements, queryingCalls);
+    }
+
+    private void check(HttpServletRequest request, long statements, Map<String, Integer> queryingCalls) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        QueryBudget budget = handler instanceof HandlerMethod
+                ? ((HandlerMethod) handler).getMethodAnnotation(QueryBudget.class)
+                : null;
+        if (budget != null && statements > budget.value()) {
+            report(String.format("%s %s ran %d statements over budget of %d", request.getMethod(),
+                    request.getRequestURI(), statements, budget.value()));
+        }
+        String repeated = queryingCalls.entrySet().stream()
+                .filter(entry -> entry.getValue() >= repeatedCallThreshold)
+                .map(entry -> entry.getKey() + " x" + entry.getValue())
+                .collect(Collectors.joining(", "));
+        if (!repeated.isEmpty()) {
+            report(String.format("%s %s repeated querying storage calls: %s", request.getMethod(),
+                    request.getRequestURI(), repeated));
+        }
+    }
+
+    private void report(String message) {
+        if (enforce) throw new IllegalStateException(message);
+        log.warn(message);
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.storage.ReadWriteRoutingDataSource;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps reads of a client on the write data source for a while after its writes, so it sees its own
+ * writes despite replication lag. Time of the last write is kept in a cookie set by requests which wrote,
+ * reads of the same request after its write stick to the write data source as well.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String LAST_WRITE_COOKIE = "filmorate-last-write";
+    private final long stickyWindow;
+
+    public ReadYourWritesFilter(@Value("${filmorate.datasource.read.sticky-window:5000}") long stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadWriteRoutingDataSource.openScope(System.currentTimeMillis() - getLastWrite(request) < stickyWindow);
+        BeforeCommitResponse cookieResponse = new BeforeCommitResponse(response, () -> {
+            if (!ReadWriteRoutingDataSource.isWritten()) return;
+            ResponseCookie cookie = ResponseCookie.from(LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis()))
+                    .path("/")
+                    .maxAge(Duration.ofMillis(stickyWindow))
+                    .httpOnly(true)
+                    .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        });
+        try {
+            filterChain.doFilter(request, cookieResponse);
+            cookieResponse.beforeCommit();
+        } finally {
+            ReadWriteRoutingDataSource.closeScope();
+        }
+    }
+
+    private static long getLastWrite(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return 0;
+        for (Cookie cookie : cookies) {
+            if (!LAST_WRITE_COOKIE.equals(cookie.getName())) continue;
+            try {
+                return Long.parseLong(cookie.getValue());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Phase times of one request, filled in by {@link RequestTimingFilter}, {@link RequestTimingInterceptor},
+ * {@link RequestTimingAdvice} and {@link TimingValidator}. All times are in nanoseconds.
+ */
+final class RequestTiming {
+    static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    private long handlerStart;
+    private long handlerEnd;
+    private long readStart;
+    private long deserialization;
+    private long validation;
+    private long serializationStart;
+
+    /**
+     * Get timing of the request handled by the current thread.
+     * @return Timing or null if the request is not timed.
+     */
+    static RequestTiming current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        return (RequestTiming) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    void handlerStarted() {
+        handlerStart = System.nanoTime();
+    }
+
+    void handlerFinished() {
+        handlerEnd = System.nanoTime();
+    }
+
+    void readStarted() {
+        readStart = System.nanoTime();
+    }
+
+    void readFinished() {
+        if (readStart != 0) deserialization += System.nanoTime() - readStart;
+        readStart = 0;
+    }
+
+    void validated(long time) {
+        validation += time;
+    }
+
+    void serializationStarted() {
+        if (serializationStart == 0) serializationStart = System.nanoTime();
+    }
+
+    long getDeserialization() {
+        return deserialization;
+    }
+
+    long getValidation() {
+        return validation;
+    }
+
+    /**
+     * Get time of the handler, less reading and validating its arguments and writing its result.
+     * @param end Time the request ended, used if the handler did not finish before, as asynchronous ones.
+     * @return Time of service.
+     */
+    long getService(long end) {
+        if (handlerStart == 0) return 0;
+        long serviceEnd = serializationStart != 0 ? serializationStart : handlerEnd != 0 ? handlerEnd : end;
+        return Math.max(0, serviceEnd - handlerStart - deserialization - validation);
+    }
+
+    /**
+     * Get time of writing the response body.
+     * @param end Time the request ended, used if the handler did not finish before.
+     * @return Time of serialization, 0 if no body was written by a message converter.
+     */
+    long getSerialization(long end) {
+        if (serializationStart == 0) return 0;
+        return (handlerEnd != 0 ? handlerEnd : end) - serializationStart;
+    }
+}
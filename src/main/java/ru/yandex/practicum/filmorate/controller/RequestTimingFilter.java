@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.storage.QueryCounter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latency of requests per route template and phase: total, reading request body, validating
+ * arguments, service and writing response body. Service is the rest of the handler time, including argument
+ * binding and exception handling. Requests slower than the threshold are kept in {@link SlowRequestLog}
+ * with their phase breakdown and SQL statements.
+ * <p>
+ * Asynchronous requests are timed till the handler returns, so time of streaming their bodies is not included.
+ */
+@Component
+public class RequestTimingFilter extends OncePerRequestFilter {
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+    private static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    private final MeterRegistry meterRegistry;
+    private final SlowRequestLog slowRequestLog;
+    private final long slowRequestThreshold;
+    private final Map<String, RouteTimers> routes = new ConcurrentHashMap<>();
+
+    public RequestTimingFilter(MeterRegistry meterRegistry, SlowRequestLog slowRequestLog,
+                               @Value("${filmorate.http.slow-request-threshold:500}") long slowRequestThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.slowRequestLog = slowRequestLog;
+        this.slowRequestThreshold = TimeUnit.MILLISECONDS.toNanos(slowRequestThreshold);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = new RequestTiming();
+        request.setAttribute(RequestTiming.ATTRIBUTE, timing);
+        QueryCounter counter = QueryCounter.current();
+        counter.mark();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long end = System.nanoTime();
+            long statements = counter.getStatementsSinceMark();
+            long databaseTime = counter.getDatabaseTimeSinceMark();
+            counter.unmark();
+            // Exceptions are turned into error responses past filters
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            record(request, status, timing, end - start, end, statements, databaseTime);
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, RequestTiming timing,
+                        long total, long end, long statements, long databaseTime) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : UNMATCHED_ROUTE;
+        RouteTimers timers = routes.computeIfAbsent(request.getMethod() + " " + route,
+                key -> new RouteTimers(request.getMethod(), route));
+        long service = timing.getService(end);
+        long serialization = timing.getSerialization(end);
+        timers.total.record(total, TimeUnit.NANOSECONDS);
+        timers.deserialization.record(timing.getDeserialization(), TimeUnit.NANOSECONDS);
+        timers.validation.record(timing.getValidation(), TimeUnit.NANOSECONDS);
+        timers.service.record(service, TimeUnit.NANOSECONDS);
+        timers.serialization.record(serialization, TimeUnit.NANOSECONDS);
+
+        if (total < slowRequestThreshold) return;
+        slowRequestLog.add(new SlowRequestLog.SlowRequest(Instant.now(), request.getMethod(), request.getRequestURI(),
+                route, status, toMillis(total), toMillis(timing.getDeserialization()),
+                toMillis(timing.getValidation()), toMillis(service), toMillis(serialization),
+                statements, toMillis(databaseTime)));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Timers of phases of one route.
+     */
+    private class RouteTimers {
+        private final Timer total;
+        private final Timer deserialization;
+        private final Timer validation;
+        private final Timer service;
+        private final Timer serialization;
+
+        RouteTimers(String method, String route) {
+            this.total = timer(method, route, "total");
+            this.deserialization = timer(method, route, "deserialization");
+            this.validation = timer(method, route, "validation");
+            this.service = timer(method, route, "service");
+            this.serialization = timer(method, route, "serialization");
+        }
+
+        private Timer timer(String method, String route, String phase) {
+            return Timer.builder("filmorate.http.requests")
+                    .description("Latency of requests per route and phase")
+                    .tags("method", method, "route", route, "phase", phase)
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry);
+        }
+    }
+}
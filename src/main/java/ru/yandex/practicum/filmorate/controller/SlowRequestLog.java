@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Last slow requests, kept in a ring buffer of fixed capacity. Adding is lock-free and overwrites the oldest
+ * request once the buffer is full.
+ */
+@Component
+public class SlowRequestLog {
+    private final AtomicReferenceArray<SlowRequest> requests;
+    private final AtomicLong added = new AtomicLong();
+
+    public SlowRequestLog(@Value("${filmorate.http.slow-request-capacity:100}") int capacity) {
+        this.requests = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(SlowRequest request) {
+        requests.set((int) (added.getAndIncrement() % requests.length()), request);
+    }
+
+    /**
+     * Get kept slow requests.
+     * @return List of requests, the latest first.
+     */
+    public List<SlowRequest> getSlowRequests() {
+        long last = added.get();
+        List<SlowRequest> result = new ArrayList<>();
+        for (long i = last - 1; i >= 0 && i >= last - requests.length(); i--) {
+            SlowRequest request = requests.get((int) (i % requests.length()));
+            if (request != null) result.add(request);
+        }
+        return result;
+    }
+
+    /**
+     * Slow request with its phase breakdown, times in milliseconds.
+     */
+    @lombok.Value
+    public static class SlowRequest {
+        Instant time;
+        String method;
+        String uri;
+        String route;
+        int status;
+        double totalMs;
+        double deserializationMs;
+        double validationMs;
+        double serviceMs;
+        double serializationMs;
+        long statements;
+        double databaseMs;
+    }
+}
@@ -2,57 +2,106 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchImporter;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validator.FilmorateValidationErrorBuilder;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.*;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
 @RestController
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final BatchImporter batchImporter;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JsonStreamWriter jsonStreamWriter, BatchImporter batchImporter) {
         this.userService = userService;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.batchImporter = batchImporter;
     }
 
+    @QueryBudget(2)
     @GetMapping("/users")
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) return ResponseEntity.ok(userService.getAllUsers());
+        if (limit != null && limit <= 0) throw new ResponseStatusException(BAD_REQUEST, "Limit must be positive");
+        Page<User> page = userService.getUsers(after, limit != null ? limit : FilmController.DEFAULT_PAGE_SIZE);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) response.header(FilmController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/users/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamWriter.<User>stream(accept, userService::forEachUser);
     }
 
+    @QueryBudget(2)
     @GetMapping("/users/{id}")
-    public ResponseEntity<?> getUserById(@PathVariable int id) {
+    public ResponseEntity<?> getUserById(@PathVariable int id, WebRequest request) {
+        Optional<Long> version = userService.getUserVersion(id);
+        if (version.isPresent() && request.checkNotModified("user-" + id + "-" + version.get())) return null;
         return ResponseEntity.ok(userService.getUserById(id));
     }
 
+    @QueryBudget(6)
     @PutMapping("/users/{id}/friends/{friendId}")
     public ResponseEntity<?> makeFriends(@PathVariable int id, @PathVariable int friendId) {
         return ResponseEntity.ok(userService.makeFriends(id, friendId));
     }
 
+    @QueryBudget(6)
     @DeleteMapping("/users/{id}/friends/{friendId}")
     public ResponseEntity<?> removeFriends(@PathVariable int id, @PathVariable int friendId) {
         return ResponseEntity.ok(userService.removeFriends(id, friendId));
     }
 
+    @QueryBudget(2)
     @GetMapping("/users/{id}/friends")
-    public ResponseEntity<?> getUserFriends(@PathVariable int id) {
+    public ResponseEntity<?> getUserFriends(@PathVariable int id, WebRequest request) {
+        Optional<Long> version = userService.getFriendsVersion(id);
+        if (version.isPresent() && request.checkNotModified("friends-" + id + "-" + Long.toHexString(version.get()))) return null;
         return ResponseEntity.ok(userService.getUserFriends(id));
     }
 
+    @GetMapping("/users/{id}/friends/suggested")
+    public ResponseEntity<?> getSuggestedFriends(@PathVariable int id,
+                                                 @RequestParam(required = false, defaultValue = "10") int count) {
+        if (count <= 0) throw new ResponseStatusException(BAD_REQUEST, "Count must be positive");
+        return ResponseEntity.ok(userService.showSuggestedFriends(id, count));
+    }
+
+    @QueryBudget(2)
     @GetMapping("/users/{id}/friends/common/{otherId}")
     public ResponseEntity<?> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         return ResponseEntity.ok(userService.showCommonFriends(id, otherId));
     }
 
+    @PostMapping(value = "/users/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ImportReport importAll(HttpServletRequest request) throws IOException {
+        return batchImporter.importAll(request.getInputStream(), User.class, userService::addUsers, userService::addUser, User::getId);
+    }
+
+    @QueryBudget(3)
     @PostMapping("/users")
     public ResponseEntity<?> create(HttpServletRequest request, @Valid @RequestBody User user, Errors errors) {
         if (errors.hasErrors()) {
@@ -63,6 +112,7 @@ public class UserController {
         return ResponseEntity.ok(userService.addUser(user));
     }
 
+    @QueryBudget(2)
     @PutMapping("/users")
     public ResponseEntity<?> updateUser(HttpServletRequest request, @Valid @RequestBody User user, Errors errors) {
         if (errors.hasErrors()) {
@@ -73,6 +123,7 @@ public class UserController {
         return ResponseEntity.ok(userService.updateUser(user.getId(), user));
     }
 
+    @QueryBudget(2)
     @PatchMapping("/user/{id}")
     public ResponseEntity<?> update(HttpServletRequest request, @Valid @RequestBody User user, @PathVariable int id, Errors errors) {
         if (errors.hasErrors()) {
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers request phase timing: handler interceptor and validator of handler arguments.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+    private final javax.validation.Validator validator;
+
+    public WebConfiguration(javax.validation.Validator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestTimingInterceptor());
+    }
+
+    @Override
+    public Validator getValidator() {
+        return new TimingValidator(new SpringValidatorAdapter(validator));
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportReport {
+    private int received;
+    private int imported;
+    private boolean aborted;
+    private final List<Integer> ids = new ArrayList<>();
+    private final List<ItemError> errors = new ArrayList<>();
+
+    @Data
+    public static class ItemError {
+        private final int index;
+        private final List<String> messages;
+    }
+}
@@ -1,9 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-@Data
+@Value
 public class Rating {
-    private int id;
-    private String name;
+    int id;
+    String name;
+
+    @JsonCreator
+    public Rating(@JsonProperty("id") int id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
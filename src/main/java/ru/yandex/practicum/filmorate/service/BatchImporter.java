@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Imports items from JSON array or NDJSON request body. Items are read one by one, validated and
+ * added in chunks with one storage call per chunk. When a chunk fails, its items are added one by one
+ * to find out which of them are broken, so one bad item does not reject the whole chunk.
+ */
+@Slf4j
+@Component
+public class BatchImporter {
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public BatchImporter(ObjectMapper objectMapper, Validator validator,
+                         @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Import items from input stream.
+     * @param body JSON array or NDJSON input stream.
+     * @param type Class of items.
+     * @param addAll Function to add chunk of items at once.
+     * @param addOne Function to add single item.
+     * @param idGetter Function to get ID of added item.
+     * @return Report with IDs of added items in order of input and errors of failed items.
+     */
+    public <T> ImportReport importAll(InputStream body, Class<T> type, UnaryOperator<List<T>> addAll,
+                                      UnaryOperator<T> addOne, ToIntFunction<T> idGetter) throws IOException {
+        ImportReport report = new ImportReport();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        try (MappingIterator<T> items = objectMapper.readerFor(type).readValues(body)) {
+            while (true) {
+                T item;
+                try {
+                    if (!items.hasNextValue()) break;
+                    item = items.nextValue();
+                } catch (JsonProcessingException e) {
+                    report.getErrors().add(new ImportReport.ItemError(report.getReceived(),
+                            List.of("Malformed item: " + e.getOriginalMessage())));
+                    report.setAborted(true);
+                    break;
+                }
+                int index = report.getReceived();
+                report.setReceived(index + 1);
+                report.getIds().add(null);
+
+                Set<ConstraintViolation<T>> violations = validator.validate(item);
+                if (!violations.isEmpty()) {
+                    report.getErrors().add(new ImportReport.ItemError(index, violations.stream()
+                            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                            .sorted()
+                            .collect(Collectors.toList())));
+                    continue;
+                }
+                chunk.add(item);
+                chunkIndexes.add(index);
+                if (chunk.size() == chunkSize) flush(chunk, chunkIndexes, report, addAll, addOne, idGetter);
+            }
+        }
+        flush(chunk, chunkIndexes, report, addAll, addOne, idGetter);
+        report.getErrors().sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return report;
+    }
+
+    private <T> void flush(List<T> chunk, List<Integer> chunkIndexes, ImportReport report, UnaryOperator<List<T>> addAll,
+                           UnaryOperator<T> addOne, ToIntFunction<T> idGetter) {
+        if (chunk.isEmpty()) return;
+        try {
+            List<T> added = addAll.apply(chunk);
+            for (int i = 0; i < added.size(); i++) report.getIds().set(chunkIndexes.get(i), idGetter.applyAsInt(added.get(i)));
+            report.setImported(report.getImported() + added.size());
+        } catch (RuntimeException e) {
+            log.warn("Chunk of {} items failed, adding them one by one: {}", chunk.size(), getMessage(e), e);
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    report.getIds().set(chunkIndexes.get(i), idGetter.applyAsInt(addOne.apply(chunk.get(i))));
+                    report.setImported(report.getImported() + 1);
+                } catch (RuntimeException itemException) {
+                    report.getErrors().add(new ImportReport.ItemError(chunkIndexes.get(i), List.of(getMessage(itemException))));
+                }
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private String getMessage(RuntimeException e) {
+        if (e instanceof ResponseStatusException) return ((ResponseStatusException) e).getReason();
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
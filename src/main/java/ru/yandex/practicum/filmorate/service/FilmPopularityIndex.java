@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeCountReconciler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-process ranking of films by likes, ordered the same way as InMemoryFilmStorage.getTopFilms:
+ * more likes first, then by name. Updates take O(log n) and readers never block writers. Each film keeps
+ * the like count of its latest version seen, so updates applied out of order can't bring back an older count.
+ * Removed films are remembered till the next rebuild, so late updates can't bring them back either.
+ */
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> RANKING_ORDER = Comparator.comparingInt((Entry e) -> e.likes).reversed()
+            .thenComparing(e -> e.name, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(e -> e.filmId);
+
+    private final FilmStorage filmStorage;
+    private volatile Ranking current = new Ranking();
+    private volatile Ranking building;
+
+    public FilmPopularityIndex(@Qualifier("filmStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    /**
+     * Load ranking from storage. Updates made while loading are kept, so it is safe to run at any time
+     * to pick up likes written by other application instances. First loaded once the application is ready,
+     * after like counters are backfilled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(LikeCountReconciler.BACKFILL_ORDER + 1)
+    @Scheduled(initialDelayString = "${filmorate.popularity.rebuild-interval:600000}",
+            fixedDelayString = "${filmorate.popularity.rebuild-interval:600000}")
+    public synchronized void rebuild() {
+        Ranking ranking = new Ranking();
+        building = ranking;
+        try {
+            filmStorage.getAllFilms().forEach(f -> ranking.put(f.getId(), f.getName(), f.getLikeCount(), f.getVersion()));
+            current = ranking;
+        } finally {
+            building = null;
+        }
+        log.info("Popularity index loaded with {} films", ranking.order.size());
+    }
+
+    /**
+     * Put film with its name and like count to the ranking, unless a newer version of film is ranked.
+     * @param film Film object with like count and version read together.
+     */
+    public void update(Film film) {
+        // Read building ranking first: once rebuild swaps it in, the update must not go to the replaced one only
+        Ranking ranking = building;
+        current.put(film.getId(), film.getName(), film.getLikeCount(), film.getVersion());
+        if (ranking != null) ranking.put(film.getId(), film.getName(), film.getLikeCount(), film.getVersion());
+    }
+
+    /**
+     * Change name of already ranked film keeping its like count.
+     * @param filmId Film ID.
+     * @param name New film name.
+     */
+    public void rename(int filmId, String name) {
+        Ranking ranking = building;
+        current.rename(filmId, name);
+        if (ranking != null) ranking.rename(filmId, name);
+    }
+
+    /**
+     * Remove film from the ranking.
+     * @param filmId Film ID.
+     */
+    public void remove(int filmId) {
+        Ranking ranking = building;
+        current.remove(filmId);
+        if (ranking != null) ranking.remove(filmId);
+    }
+
+    /**
+     * Get page of most popular film IDs.
+     * @param after Cursor returned with previous page or null for the first page.
+     * @param count Max amount of film IDs on the page.
+     * @return Page of film IDs with cursor of the next page, if there is one.
+     */
+    public Page<Integer> getTopFilmIds(String after, int count) {
+        NavigableSet<Entry> order = current.order;
+        if (after != null) order = order.tailSet(decodeCursor(after), false);
+
+        List<Integer> filmIds = new ArrayList<>(count);
+        Iterator<Entry> iterator = order.iterator();
+        Entry last = null;
+        while (filmIds.size() < count && iterator.hasNext()) {
+            last = iterator.next();
+            filmIds.add(last.filmId);
+        }
+        String nextCursor = last != null && iterator.hasNext() ? PageCursor.encode(last.likes, last.filmId, last.name) : null;
+        return new Page<>(filmIds, nextCursor);
+    }
+
+    private Entry decodeCursor(String cursor) {
+        List<String> values = PageCursor.decode(cursor, 3);
+        String name = "null".equals(values.get(2)) ? null : values.get(2);
+        return new Entry(PageCursor.parseInt(values.get(1)), name, PageCursor.parseInt(values.get(0)), 0);
+    }
+
+    private static final class Entry {
+        private final int filmId;
+        private final String name;
+        private final int likes;
+        private final long version;
+
+        private Entry(int filmId, String name, int likes, long version) {
+            this.filmId = filmId;
+            this.name = name;
+            this.likes = likes;
+            this.version = version;
+        }
+    }
+
+    private static final class Ranking {
+        private static final long REMOVED = Long.MAX_VALUE;
+
+        private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>(RANKING_ORDER);
+
+        private void put(int filmId, String name, int likes, long version) {
+            entries.compute(filmId, (id, old) -> old != null && old.version > version
+                    ? old
+                    : replace(old, new Entry(filmId, name, likes, version)));
+        }
+
+        private void rename(int filmId, String name) {
+            entries.computeIfPresent(filmId, (id, old) -> old.version == REMOVED
+                    ? old
+                    : replace(old, new Entry(filmId, name, old.likes, old.version)));
+        }
+
+        private void remove(int filmId) {
+            entries.compute(filmId, (id, old) -> {
+                if (old != null) order.remove(old);
+                return new Entry(filmId, null, 0, REMOVED);
+            });
+        }
+
+        private Entry replace(Entry old, Entry entry) {
+            if (old != null) order.remove(old);
+            order.add(entry);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Item-based collaborative filtering over likes. Keeps sparse user x film like matrix as sorted int
+ * postings per film and per user, plus co-like counts per pair of films: how many users liked both.
+ * Likes update the counts incrementally, full rebuild from storage runs in parallel on its own pool.
+ * Requests are answered from memory only.
+ */
+@Slf4j
+@Service
+public class FilmRecommendationService {
+    /**
+     * Max amount of liked films used as seeds of one user recommendations. Like times are not kept, so
+     * the cap takes films with the highest IDs, which are the latest added films, not the latest liked ones.
+     */
+    static final int MAX_SEED_FILMS = 500;
+
+    private final FilmStorage filmStorage;
+    private final ForkJoinPool pool;
+    private volatile Model model = new Model();
+    private List<LikeEvent> journal;
+
+    public FilmRecommendationService(@Qualifier("filmStorage") FilmStorage filmStorage,
+                                     @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.filmStorage = filmStorage;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Rebuild like matrix and co-like counts from storage. Likes coming while rebuilding are written
+     * to journal and replayed on the new model before it replaces the current one.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${filmorate.recommendations.rebuild-interval:3600000}",
+            fixedDelayString = "${filmorate.recommendations.rebuild-interval:3600000}")
+    public void rebuild() {
+        synchronized (this) {
+            if (journal != null) return;
+            journal = new ArrayList<>();
+        }
+        Model loaded;
+        try {
+            loaded = load(filmStorage.getFilmLikes());
+        } catch (RuntimeException | InterruptedException | ExecutionException e) {
+            synchronized (this) {
+                journal = null;
+            }
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            log.warn("Unable to rebuild film recommendations", e);
+            return;
+        }
+        synchronized (this) {
+            journal.forEach(event -> loaded.apply(event.userId, event.filmId, event.liked));
+            journal = null;
+            model = loaded;
+        }
+        log.info("Film recommendations rebuilt for {} films and {} users", loaded.likers.size(), loaded.liked.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Register like of film by user.
+     * @param userId User ID.
+     * @param filmId Film ID.
+     */
+    public synchronized void likeAdded(int userId, int filmId) {
+        model.apply(userId, filmId, true);
+        if (journal != null) journal.add(new LikeEvent(userId, filmId, true));
+    }
+
+    /**
+     * Register removal of like of film by user.
+     * @param userId User ID.
+     * @param filmId Film ID.
+     */
+    public synchronized void likeRemoved(int userId, int filmId) {
+        model.apply(userId, filmId, false);
+        if (journal != null) journal.add(new LikeEvent(userId, filmId, false));
+    }
+
+    /**
+     * Apply likes of film read from storage, as after a change by another application instance: likes
+     * missing in the model are added and likes gone from storage are removed.
+     * @param filmId Film ID.
+     * @param userIds Sorted array of IDs of users who liked film.
+     */
+    public synchronized void likesLoaded(int filmId, int[] userIds) {
+        int[] current = model.likers.getOrDefault(filmId, SortedIntArrays.EMPTY);
+        for (int userId : userIds) {
+            if (Arrays.binarySearch(current, userId) < 0) likeAdded(userId, filmId);
+        }
+        for (int userId : current) {
+            if (Arrays.binarySearch(userIds, userId) < 0) likeRemoved(userId, filmId);
+        }
+    }
+
+    /**
+     * Get films liked by the same users as given film.
+     * @param filmId Film ID.
+     * @param count Max amount of films.
+     * @return IDs of films ordered by amount of users who liked both films, then by ID.
+     */
+    public int[] getSimilarFilmIds(int filmId, int count) {
+        IntCounts coLikes = model.coLikes.get(filmId);
+        if (coLikes == null) return SortedIntArrays.EMPTY;
+        synchronized (coLikes) {
+            return coLikes.top(count, new int[] {filmId});
+        }
+    }
+
+    /**
+     * Get films recommended for user: co-like counts of films user liked are summed up,
+     * films user already liked are skipped. Users with more than MAX_SEED_FILMS liked films are
+     * recommended from those with the highest IDs only.
+     * @param userId User ID.
+     * @param count Max amount of films.
+     * @return IDs of films ordered by score, then by ID.
+     */
+    public int[] getRecommendedFilmIds(int userId, int count) {
+        Model current = model;
+        int[] likedFilms = current.liked.getOrDefault(userId, SortedIntArrays.EMPTY);
+        IntCounts scores = new IntCounts(64);
+        for (int i = Math.max(0, likedFilms.length - MAX_SEED_FILMS); i < likedFilms.length; i++) {
+            IntCounts coLikes = current.coLikes.get(likedFilms[i]);
+            if (coLikes == null) continue;
+            synchronized (coLikes) {
+                scores.addAll(coLikes, 1);
+            }
+        }
+        return scores.top(count, likedFilms);
+    }
+
+    private Model load(Map<Integer, int[]> filmLikes) throws InterruptedException, ExecutionException {
+        Model loaded = new Model();
+        loaded.likers.putAll(filmLikes);
+
+        long edges = filmLikes.values().stream().mapToLong(a -> a.length).sum();
+        long[] userFilms = new long[Math.toIntExact(edges)];
+        int size = 0;
+        for (Map.Entry<Integer, int[]> entry : filmLikes.entrySet()) {
+            for (int userId : entry.getValue()) userFilms[size++] = ((long) userId << 32) | entry.getKey();
+        }
+        Arrays.parallelSort(userFilms);
+        for (int from = 0; from < size; ) {
+            int userId = (int) (userFilms[from] >>> 32);
+            int to = from;
+            while (to < size && (int) (userFilms[to] >>> 32) == userId) to++;
+            int[] filmIds = new int[to - from];
+            for (int i = from; i < to; i++) filmIds[i - from] = (int) userFilms[i];
+            loaded.liked.put(userId, filmIds);
+            from = to;
+        }
+
+        pool.submit(() -> filmLikes.keySet().parallelStream().forEach(filmId -> {
+            IntCounts coLikes = new IntCounts();
+            for (int userId : loaded.likers.get(filmId)) {
+                for (int otherFilmId : loaded.liked.get(userId)) {
+                    if (otherFilmId != filmId) coLikes.add(otherFilmId, 1);
+                }
+            }
+            if (coLikes.size() > 0) loaded.coLikes.put(filmId, coLikes);
+        })).get();
+        return loaded;
+    }
+
+    private static final class Model {
+        private final ConcurrentMap<Integer, int[]> likers = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, int[]> liked = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, IntCounts> coLikes = new ConcurrentHashMap<>();
+
+        /**
+         * Apply like change. Repeated changes are ignored, so journal could be replayed over a model
+         * which already has some of its likes.
+         */
+        private void apply(int userId, int filmId, boolean isLiked) {
+            int[] userFilms = liked.getOrDefault(userId, SortedIntArrays.EMPTY);
+            boolean present = Arrays.binarySearch(userFilms, filmId) >= 0;
+            if (present == isLiked) return;
+
+            int delta = isLiked ? 1 : -1;
+            for (int otherFilmId : userFilms) {
+                if (otherFilmId == filmId) continue;
+                addCoLike(filmId, otherFilmId, delta);
+                addCoLike(otherFilmId, filmId, delta);
+            }
+            if (isLiked) {
+                liked.put(userId, SortedIntArrays.insert(userFilms, filmId));
+                likers.compute(filmId, (id, ids) -> SortedIntArrays.insert(ids, userId));
+            } else {
+                liked.put(userId, SortedIntArrays.remove(userFilms, filmId));
+                likers.computeIfPresent(filmId, (id, ids) -> SortedIntArrays.remove(ids, userId));
+            }
+        }
+
+        private void addCoLike(int filmId, int otherFilmId, int delta) {
+            IntCounts counts = delta > 0 ? coLikes.computeIfAbsent(filmId, id -> new IntCounts()) : coLikes.get(filmId);
+            if (counts == null) return;
+            synchronized (counts) {
+                counts.add(otherFilmId, delta);
+            }
+        }
+    }
+
+    private static final class LikeEvent {
+        private final int userId;
+        private final int filmId;
+        private final boolean liked;
+
+        private LikeEvent(int userId, int filmId, boolean liked) {
+            this.userId = userId;
+            this.filmId = filmId;
+            this.liked = liked;
+        }
+    }
+}
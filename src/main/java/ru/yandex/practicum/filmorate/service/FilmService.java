@@ -6,51 +6,82 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @Service
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmRecommendationService recommendations;
+    private final LikeWriteQueue likeQueue;
+
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+        this(filmStorage, userStorage, null, null, null);
+    }
 
     @Autowired
-    public FilmService(@Qualifier("dbFilmStorage") FilmStorage filmStorage,
-                       @Qualifier("dbUserStorage") UserStorage userStorage) {
+    public FilmService(@Qualifier("filmStorage") FilmStorage filmStorage,
+                       @Qualifier("userStorage") UserStorage userStorage,
+                       FilmPopularityIndex popularityIndex,
+                       FilmRecommendationService recommendations,
+                       LikeWriteQueue likeQueue) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.popularityIndex = popularityIndex;
+        this.recommendations = recommendations;
+        this.likeQueue = likeQueue;
     }
 
     /**
      * Add like to film by User and Film IDs.
      * @param userId User ID.
      * @param filmId Film ID.
-     * @return Film object to which like was added.
+     * @return Film object to which like was added or null if like was queued to be saved later.
      */
     public Film addLike(int userId, int filmId) {
+        if (likeQueue != null && likeQueue.isEnabled()) {
+            queueLike(userId, filmId, true);
+            return null;
+        }
         User user = userStorage.getUser(userId).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
         Film film = getFilmById(filmId);
-        filmStorage.saveFilmLike(user, film);
-        return film;
+        Film result = filmStorage.saveFilmLike(user, film);
+        updatePopularity(result);
+        if (recommendations != null) recommendations.likeAdded(userId, filmId);
+        return result;
     }
 
     /**
      * Remove like from Film by User ID.
      * @param userId User ID.
      * @param filmId Film ID.
-     * @return Film object from which like was removed.
+     * @return Film object from which like was removed or null if removal was queued to be saved later.
      */
     public Film removeLike(int userId, int filmId) {
+        if (likeQueue != null && likeQueue.isEnabled()) {
+            queueLike(userId, filmId, false);
+            return null;
+        }
         User user = userStorage.getUser(userId).orElseThrow(()-> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
         Film film = getFilmById(filmId);
-        filmStorage.removeFilmLike(user, film);
-        return film;
+        Film result = filmStorage.removeFilmLike(user, film);
+        updatePopularity(result);
+        if (recommendations != null) recommendations.likeRemoved(userId, filmId);
+        return result;
     }
 
     /**
@@ -59,20 +90,98 @@ public class FilmService {
      * @return List of Film objects.
      */
     public List<Film> showTopFilms(int amount) {
-        return filmStorage.getTopFilms(amount);
+        return showTopFilms(amount, null).getItems();
+    }
+
+    /**
+     * Show page of top films, more likes - more popular.
+     * @param amount Size of page to show.
+     * @param after Cursor returned with previous page or null for the first page.
+     * @return Page of Film objects with cursor of the next page.
+     */
+    public Page<Film> showTopFilms(int amount, String after) {
+        if (popularityIndex == null) {
+            if (after != null) throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor");
+            return new Page<>(filmStorage.getTopFilms(amount), null);
+        }
+        Page<Integer> filmIds = popularityIndex.getTopFilmIds(after, amount);
+        return new Page<>(filmStorage.getFilmsByIds(filmIds.getItems()), filmIds.getNextCursor());
+    }
+
+    /**
+     * Show films liked by the same users as given film.
+     * @param filmId Film ID.
+     * @param amount Size of List to show.
+     * @return List of Film objects, more users liked both films - higher in the list.
+     */
+    public List<Film> showSimilarFilms(int filmId, int amount) {
+        getFilmById(filmId);
+        if (recommendations == null) return List.of();
+        return getFilmsByIds(recommendations.getSimilarFilmIds(filmId, amount));
+    }
+
+    /**
+     * Show films recommended for User by films liked by users with similar likes.
+     * @param userId User ID.
+     * @param amount Size of List to show.
+     * @return List of recommended Film objects.
+     */
+    public List<Film> showRecommendedFilms(int userId, int amount) {
+        userStorage.getUser(userId).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
+        if (recommendations == null) return List.of();
+        return getFilmsByIds(recommendations.getRecommendedFilmIds(userId, amount));
     }
 
     public List<Film> getAllFilms() { return filmStorage.getAllFilms(); }
 
+    public void forEachFilm(Consumer<Film> action) { filmStorage.forEachFilm(action); }
+
+    /**
+     * Get page of films ordered by ID.
+     * @param after Cursor returned with previous page or null for the first page.
+     * @param limit Size of page.
+     * @return Page of Film objects with cursor of the next page.
+     */
+    public Page<Film> getFilms(String after, int limit) {
+        return PageCursor.pageById(filmStorage.getFilmsAfter(PageCursor.decodeId(after), limit + 1), limit, Film::getId);
+    }
+
+    /**
+     * Get version of film, which changes with every change of film or its likes.
+     * @param id Film ID.
+     * @return Version of film or empty Optional if film is not found.
+     */
+    public Optional<Long> getFilmVersion(int id) {
+        return filmStorage.getFilmVersion(id);
+    }
+
     public Film getFilmById(int id) {
         return filmStorage.getFilm(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find film"));
     }
 
     public Film updateFilm(int id, Film film) {
-        return filmStorage.updateFilm(id, film).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find film"));
+        Film updated = filmStorage.updateFilm(id, film).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find film"));
+        if (popularityIndex != null) popularityIndex.rename(updated.getId(), updated.getName());
+        return updated;
     }
 
-    public Film addFilm(Film film) { return filmStorage.addFilm(film); }
+    public Film removeFilm(int id) {
+        Film removed = filmStorage.removeFilm(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find film"));
+        if (popularityIndex != null) popularityIndex.remove(id);
+        return removed;
+    }
+
+    public Film addFilm(Film film) {
+        Film added = filmStorage.addFilm(film);
+        updatePopularity(added);
+        return added;
+    }
+
+    public List<Film> addFilms(List<Film> films) {
+        List<Film> added = filmStorage.addFilms(films);
+        added.forEach(this::updatePopularity);
+        return added;
+    }
 
     public List<Genre> getAllGenres() { return filmStorage.getAllGenres(); }
 
@@ -82,7 +191,29 @@ public class FilmService {
 
     public List<Rating> getAllRatings() { return filmStorage.getAllRatings(); }
 
+    /**
+     * Get version of genres and MPA ratings, which changes whenever they are reloaded.
+     * @return Version of genres and ratings.
+     */
+    public long getReferenceDataVersion() {
+        return filmStorage.getReferenceDataVersion();
+    }
+
     public Rating getRatingById(int id) {
         return filmStorage.getRating(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find rating"));
     }
+
+    private void queueLike(int userId, int filmId, boolean liked) {
+        userStorage.getUser(userId).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
+        if (!filmStorage.containsFilm(filmId)) throw new ResponseStatusException(NOT_FOUND, "Unable to find film");
+        likeQueue.put(userId, filmId, liked);
+    }
+
+    private List<Film> getFilmsByIds(int[] filmIds) {
+        return filmStorage.getFilmsByIds(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
+    }
+
+    private void updatePopularity(Film film) {
+        if (popularityIndex != null && film != null) popularityIndex.update(film);
+    }
 }
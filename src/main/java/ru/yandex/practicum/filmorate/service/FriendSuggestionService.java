@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Suggests new friends by amount of mutual friends. Works on in-memory copy of friendship graph
+ * with both directions of every edge, so a change of one user friends only drops cached suggestions
+ * of users who could reach that user in one hop. Friendship changes are applied edge by edge without
+ * locks, storage is only read by the periodic rebuild.
+ */
+@Slf4j
+@Service
+public class FriendSuggestionService {
+    static final int MAX_SUGGESTIONS = 100;
+    static final int MAX_TWO_HOP_FRIENDS = 200_000;
+
+    private final UserStorage storage;
+    private final ConcurrentMap<Integer, int[]> suggestions = new ConcurrentHashMap<>();
+    private volatile Graph graph = new Graph();
+    private volatile Queue<Edge> changedWhileLoading;
+
+    public FriendSuggestionService(@Qualifier("userStorage") UserStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Load friendship graph from storage and drop all cached suggestions. Friendship changes made while
+     * loading are applied again to the loaded graph, as it could be read before them.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${filmorate.friends.snapshot-rebuild-interval:600000}",
+            fixedDelayString = "${filmorate.friends.snapshot-rebuild-interval:600000}")
+    public synchronized void rebuild() {
+        Queue<Edge> changed = new ConcurrentLinkedQueue<>();
+        changedWhileLoading = changed;
+        Map<Integer, int[]> adjacency = storage.getFriendsAdjacency();
+        long edges = adjacency.values().stream().mapToLong(a -> a.length).sum();
+        long[] reversed = new long[Math.toIntExact(edges)];
+        int size = 0;
+        for (Map.Entry<Integer, int[]> entry : adjacency.entrySet()) {
+            for (int friendId : entry.getValue()) reversed[size++] = ((long) friendId << 32) | entry.getKey();
+        }
+        Arrays.sort(reversed);
+
+        Graph loaded = new Graph();
+        loaded.friends.putAll(adjacency);
+        for (int from = 0; from < size; ) {
+            int friendId = (int) (reversed[from] >>> 32);
+            int to = from;
+            while (to < size && (int) (reversed[to] >>> 32) == friendId) to++;
+            int[] userIds = new int[to - from];
+            for (int i = from; i < to; i++) userIds[i - from] = (int) reversed[i];
+            loaded.friendOf.put(friendId, userIds);
+            from = to;
+        }
+        graph = loaded;
+        changedWhileLoading = null;
+        for (Edge edge : changed) loaded.apply(edge);
+        suggestions.clear();
+        log.info("Friendship graph loaded with {} users and {} friendships", adjacency.size(), edges);
+    }
+
+    /**
+     * Apply changed friendship to the graph and drop suggestions which could depend on it.
+     * @param userId ID of user whose friends were changed.
+     * @param friendId ID of friend added or removed.
+     * @param added True if friend was added, false if removed.
+     */
+    public void friendshipChanged(int userId, int friendId, boolean added) {
+        Edge edge = new Edge(userId, friendId, added);
+        Queue<Edge> changed = changedWhileLoading;
+        if (changed != null) changed.add(edge);
+        Graph current = graph;
+        current.apply(edge);
+
+        suggestions.remove(userId);
+        for (int reachingUserId : current.friendOf.getOrDefault(userId, SortedIntArrays.EMPTY)) suggestions.remove(reachingUserId);
+    }
+
+    /**
+     * Apply friends of user read from storage, as after a change by another application instance: friends
+     * missing in the graph are added and friends gone from storage are removed, edge by edge.
+     * @param userId User ID.
+     * @param friendIds Sorted array of IDs of user friends.
+     */
+    public void friendsLoaded(int userId, int[] friendIds) {
+        int[] current = graph.friends.getOrDefault(userId, SortedIntArrays.EMPTY);
+        for (int friendId : friendIds) {
+            if (Arrays.binarySearch(current, friendId) < 0) friendshipChanged(userId, friendId, true);
+        }
+        for (int friendId : current) {
+            if (Arrays.binarySearch(friendIds, friendId) < 0) friendshipChanged(userId, friendId, false);
+        }
+    }
+
+    /**
+     * Get IDs of suggested friends, best first.
+     * @param userId User ID.
+     * @param count Max amount of suggested friends.
+     * @return Array of user IDs, having more mutual friends goes first, then lower ID.
+     */
+    public int[] getSuggestedFriendIds(int userId, int count) {
+        int[] result = suggestions.computeIfAbsent(userId, this::rankCandidates);
+        return result.length <= count ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Rank friends of user friends by how many user friends they are friends with. All two-hop IDs are
+     * collected in one array and sorted, so equal IDs come in runs and the length of a run is the amount
+     * of mutual friends. Traversal stops after MAX_TWO_HOP_FRIENDS IDs to bound the work for huge users.
+     * @param userId User ID.
+     * @return Array of at most MAX_SUGGESTIONS candidate IDs.
+     */
+    private int[] rankCandidates(int userId) {
+        ConcurrentMap<Integer, int[]> friends = graph.friends;
+        int[] userFriends = friends.getOrDefault(userId, SortedIntArrays.EMPTY);
+        int[] twoHop = new int[64];
+        int size = 0;
+        for (int friendId : userFriends) {
+            int[] friendFriends = friends.getOrDefault(friendId, SortedIntArrays.EMPTY);
+            if (size + friendFriends.length > twoHop.length) {
+                twoHop = Arrays.copyOf(twoHop, Math.max(twoHop.length * 2, size + friendFriends.length));
+            }
+            System.arraycopy(friendFriends, 0, twoHop, size, friendFriends.length);
+            size += friendFriends.length;
+            if (size >= MAX_TWO_HOP_FRIENDS) break;
+        }
+        Arrays.sort(twoHop, 0, size);
+
+        long[] ranked = new long[size];
+        int candidates = 0;
+        for (int from = 0; from < size; ) {
+            int candidateId = twoHop[from];
+            int to = from;
+            while (to < size && twoHop[to] == candidateId) to++;
+            if (candidateId != userId && Arrays.binarySearch(userFriends, candidateId) < 0) {
+                ranked[candidates++] = ((long) (Integer.MAX_VALUE - (to - from)) << 32) | candidateId;
+            }
+            from = to;
+        }
+        Arrays.sort(ranked, 0, candidates);
+
+        int[] result = new int[Math.min(candidates, MAX_SUGGESTIONS)];
+        for (int i = 0; i < result.length; i++) result[i] = (int) ranked[i];
+        return result;
+    }
+
+    private static final class Graph {
+        private final ConcurrentMap<Integer, int[]> friends = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, int[]> friendOf = new ConcurrentHashMap<>();
+
+        private void apply(Edge edge) {
+            if (edge.added) {
+                friends.compute(edge.userId, (id, ids) -> SortedIntArrays.insert(ids, edge.friendId));
+                friendOf.compute(edge.friendId, (id, ids) -> SortedIntArrays.insert(ids, edge.userId));
+            } else {
+                friends.computeIfPresent(edge.userId, (id, ids) -> SortedIntArrays.remove(ids, edge.friendId));
+                friendOf.computeIfPresent(edge.friendId, (id, ids) -> SortedIntArrays.remove(ids, edge.userId));
+            }
+        }
+    }
+
+    private static final class Edge {
+        private final int userId;
+        private final int friendId;
+        private final boolean added;
+
+        private Edge(int userId, int friendId, boolean added) {
+            this.userId = userId;
+            this.friendId = friendId;
+            this.added = added;
+        }
+    }
+}
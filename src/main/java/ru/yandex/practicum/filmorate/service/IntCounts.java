@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+
+/**
+ * Counts per positive int key in open-addressing arrays, without boxing. Keys whose count drops
+ * to zero are removed. Not thread-safe.
+ */
+final class IntCounts {
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCounts() {
+        this(8);
+    }
+
+    IntCounts(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) return counts[i];
+        }
+        return 0;
+    }
+
+    /**
+     * Change count of key.
+     * @param key Positive key.
+     * @param delta Value to add to count, key is removed when count is not positive anymore.
+     */
+    void add(int key, int delta) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                counts[i] += delta;
+                if (counts[i] <= 0) removeAt(i);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (delta <= 0) return;
+        keys[i] = key;
+        counts[i] = delta;
+        if (++size * 2 > keys.length) resize(keys.length * 2);
+    }
+
+    /**
+     * Get keys with the highest counts.
+     * @param limit Max amount of keys.
+     * @param exclude Sorted array of keys to skip.
+     * @return Keys ordered by count descending, then by key.
+     */
+    int[] top(int limit, int[] exclude) {
+        long[] ranked = new long[size];
+        int candidates = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY || Arrays.binarySearch(exclude, keys[i]) >= 0) continue;
+            ranked[candidates++] = ((long) (Integer.MAX_VALUE - counts[i]) << 32) | keys[i];
+        }
+        Arrays.sort(ranked, 0, candidates);
+        int[] result = new int[Math.min(limit, candidates)];
+        for (int i = 0; i < result.length; i++) result[i] = (int) ranked[i];
+        return result;
+    }
+
+    /**
+     * Add counts of other counter multiplied by weight.
+     * @param other Counter to add.
+     * @param weight Multiplier of other counts.
+     */
+    void addAll(IntCounts other, int weight) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) add(other.keys[i], other.counts[i] * weight);
+        }
+    }
+
+    private void removeAt(int removed) {
+        int mask = keys.length - 1;
+        keys[removed] = EMPTY;
+        counts[removed] = 0;
+        size--;
+        // Shift following keys of the same probe run back, so lookups never stop at the hole
+        for (int i = (removed + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            boolean reachable = removed <= i ? removed < home && home <= i : removed < home || home <= i;
+            if (reachable) continue;
+            keys[removed] = keys[i];
+            counts[removed] = counts[i];
+            keys[i] = EMPTY;
+            counts[i] = 0;
+            removed = i;
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int j = slot(oldKeys[i], mask);
+            while (keys[j] != EMPTY) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            counts[j] = oldCounts[i];
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
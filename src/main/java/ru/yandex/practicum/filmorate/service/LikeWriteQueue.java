@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Write-behind queue of likes. Pending changes are kept by user and film, so a like toggled many times
+ * before flush leaves only its last state. Changes are written to storage in batches on schedule and
+ * on shutdown, the queue refuses new changes when it is full. Every pending like holds a slot from being
+ * queued till it is written, so changes being written count against the capacity too.
+ */
+@Slf4j
+@Component
+public class LikeWriteQueue {
+    private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmRecommendationService recommendations;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final ConcurrentMap<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger slots = new AtomicInteger();
+    private final Timer flushTimer;
+
+    public LikeWriteQueue(@Qualifier("filmStorage") FilmStorage filmStorage,
+                          FilmPopularityIndex popularityIndex,
+                          FilmRecommendationService recommendations,
+                          MeterRegistry meterRegistry,
+                          @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                          @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                          @Value("${filmorate.likes.write-behind.batch-size:1000}") int batchSize) {
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.recommendations = recommendations;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        Gauge.builder("filmorate.likes.queue.depth", pending, Map::size)
+                .description("Like changes waiting to be written to storage")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("filmorate.likes.queue.flush")
+                .description("Time to write a batch of like changes to storage")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Queue like change to be written later, replacing pending change of the same like.
+     * @param userId User ID.
+     * @param filmId Film ID.
+     * @param liked True to save like, false to remove it.
+     */
+    public void put(int userId, int filmId, boolean liked) {
+        pending.compute(key(userId, filmId), (key, previous) -> {
+            if (previous == null && slots.getAndUpdate(used -> used < capacity ? used + 1 : used) >= capacity) {
+                throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Too many pending likes");
+            }
+            return liked;
+        });
+    }
+
+    /**
+     * Write all pending changes to storage. Stops at the first failed batch, its changes are put back
+     * unless newer changes of the same likes came meanwhile.
+     */
+    @Scheduled(initialDelayString = "${filmorate.likes.write-behind.flush-interval:200}",
+            fixedDelayString = "${filmorate.likes.write-behind.flush-interval:200}")
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            if (!flushBatch()) return;
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+        if (!pending.isEmpty()) log.warn("{} like changes were not written to storage", pending.size());
+    }
+
+    private boolean flushBatch() {
+        Map<Long, Boolean> batch = new HashMap<>();
+        List<int[]> added = new ArrayList<>();
+        List<int[]> removed = new ArrayList<>();
+        for (Long key : pending.keySet()) {
+            Boolean liked = pending.remove(key);
+            if (liked == null) continue;
+            batch.put(key, liked);
+            (liked ? added : removed).add(new int[] {(int) (key >>> 32), (int) (long) key});
+            if (batch.size() == batchSize) break;
+        }
+
+        Map<Integer, Integer> changes;
+        try {
+            changes = flushTimer.record(() -> filmStorage.saveFilmLikes(added, removed));
+        } catch (RuntimeException e) {
+            // Put back changes keep their slots, the ones replaced by newer changes hold slots of their own
+            batch.forEach((key, liked) -> {
+                if (pending.putIfAbsent(key, liked) != null) slots.decrementAndGet();
+            });
+            log.warn("Unable to write {} like changes, will retry", batch.size(), e);
+            return false;
+        }
+        slots.addAndGet(-batch.size());
+
+        if (recommendations != null) {
+            added.forEach(like -> recommendations.likeAdded(like[0], like[1]));
+            removed.forEach(like -> recommendations.likeRemoved(like[0], like[1]));
+        }
+        if (popularityIndex != null && !changes.isEmpty()) {
+            filmStorage.getFilmsByIds(new ArrayList<>(changes.keySet())).forEach(popularityIndex::update);
+        }
+        return true;
+    }
+
+    private static long key(int userId, int filmId) {
+        return ((long) userId << 32) | (filmId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Opaque cursors for keyset pagination. A cursor holds the sort key of the last item of a page,
+ * so the next page starts right after it no matter how many items were added or removed before.
+ */
+public final class PageCursor {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private PageCursor() {
+    }
+
+    /**
+     * Encode sort key values into cursor.
+     * @param values Sort key values of the last item on a page.
+     * @return Cursor string safe to use in URLs.
+     */
+    public static String encode(Object... values) {
+        List<String> parts = new ArrayList<>(values.length);
+        for (Object value : values) {
+            parts.add(ENCODER.encodeToString(String.valueOf(value).getBytes(StandardCharsets.UTF_8)));
+        }
+        return String.join(".", parts);
+    }
+
+    /**
+     * Decode cursor into sort key values.
+     * @param cursor Cursor string created by encode method.
+     * @param size Expected amount of values.
+     * @return List of sort key values.
+     */
+    public static List<String> decode(String cursor, int size) {
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length != size) throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor");
+        List<String> values = new ArrayList<>(size);
+        try {
+            for (String part : parts) values.add(new String(DECODER.decode(part), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor");
+        }
+        return values;
+    }
+
+    /**
+     * Decode cursor of a page ordered by ID.
+     * @param cursor Cursor string or null for the first page.
+     * @return ID of the last item of previous page, 0 for the first page.
+     */
+    public static int decodeId(String cursor) {
+        if (cursor == null) return 0;
+        return parseInt(decode(cursor, 1).get(0));
+    }
+
+    /**
+     * Build page ordered by ID from items fetched with one extra item over the limit.
+     * @param items Items following previous page, at most limit + 1 of them.
+     * @param limit Size of page.
+     * @param idGetter Function to get item ID.
+     * @return Page of items with cursor of the next page, if there is one.
+     */
+    public static <T> Page<T> pageById(List<T> items, int limit, ToIntFunction<T> idGetter) {
+        if (items.size() <= limit) return new Page<>(items, null);
+        List<T> pageItems = items.subList(0, limit);
+        return new Page<>(pageItems, encode(idGetter.applyAsInt(pageItems.get(limit - 1))));
+    }
+
+    /**
+     * Parse integer value of decoded cursor.
+     * @param value Decoded cursor value.
+     * @return Integer value.
+     */
+    public static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
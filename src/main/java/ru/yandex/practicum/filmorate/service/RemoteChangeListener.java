@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.ChangeLogListener;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies films and users changed by other application instances to in-memory copies of this one:
+ * popularity ranking, film recommendations and friend suggestions. Changed films, their likes and friends
+ * of changed users are read again from storage, so they are seen within the change log poll interval
+ * instead of the next rebuild. A change of all films or users rebuilds the affected copies.
+ */
+@Component
+public class RemoteChangeListener implements ChangeLogListener {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmRecommendationService recommendations;
+    private final FriendSuggestionService friendSuggestions;
+
+    public RemoteChangeListener(@Qualifier("filmStorage") FilmStorage filmStorage,
+                                @Qualifier("userStorage") UserStorage userStorage,
+                                FilmPopularityIndex popularityIndex,
+                                FilmRecommendationService recommendations,
+                                FriendSuggestionService friendSuggestions) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.popularityIndex = popularityIndex;
+        this.recommendations = recommendations;
+        this.friendSuggestions = friendSuggestions;
+    }
+
+    @Override
+    public void changed(ChangeLog.Entity entity, Set<Integer> entityIds) {
+        if (entity == ChangeLog.Entity.FILM) {
+            if (entityIds == null) {
+                popularityIndex.rebuild();
+                recommendations.rebuild();
+            } else {
+                filmsChanged(new ArrayList<>(entityIds));
+            }
+        } else if (entity == ChangeLog.Entity.USER) {
+            if (entityIds == null) {
+                friendSuggestions.rebuild();
+            } else {
+                usersChanged(new ArrayList<>(entityIds));
+            }
+        }
+    }
+
+    private void filmsChanged(List<Integer> filmIds) {
+        Set<Integer> removed = new HashSet<>(filmIds);
+        for (Film film : filmStorage.getFilmsByIds(filmIds)) {
+            popularityIndex.update(film);
+            removed.remove(film.getId());
+        }
+        removed.forEach(popularityIndex::remove);
+
+        Map<Integer, int[]> likes = filmStorage.getFilmLikesByIds(filmIds);
+        filmIds.forEach(filmId -> recommendations.likesLoaded(filmId, likes.getOrDefault(filmId, SortedIntArrays.EMPTY)));
+    }
+
+    private void usersChanged(List<Integer> userIds) {
+        Map<Integer, int[]> friends = userStorage.getFriendsAdjacencyByIds(userIds);
+        userIds.forEach(userId -> friendSuggestions.friendsLoaded(userId, friends.getOrDefault(userId, SortedIntArrays.EMPTY)));
+    }
+}
@@ -4,20 +4,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @Service
 public class UserService {
     private final UserStorage storage;
+    private final FriendSuggestionService friendSuggestions;
+
+    public UserService(UserStorage storage) {
+        this(storage, null);
+    }
 
     @Autowired
-    public UserService(@Qualifier("dbUserStorage") UserStorage storage) {
+    public UserService(@Qualifier("userStorage") UserStorage storage, FriendSuggestionService friendSuggestions) {
         this.storage = storage;
+        this.friendSuggestions = friendSuggestions;
     }
 
     /**
@@ -27,7 +38,9 @@ public class UserService {
      * @return List of Users if addition was successfull.
      */
     public List<User> makeFriends(int firstUserId, int secondUserId) {
-        return storage.saveFriendship(firstUserId, secondUserId);
+        List<User> result = storage.saveFriendship(firstUserId, secondUserId);
+        if (friendSuggestions != null) friendSuggestions.friendshipChanged(firstUserId, secondUserId, true);
+        return result;
     }
 
     /**
@@ -37,7 +50,22 @@ public class UserService {
      * @return List of Users with removed friendship.
      */
     public List<User> removeFriends(int firstUserId, int secondUserId) {
-        return storage.removeFriendship(firstUserId, secondUserId);
+        List<User> result = storage.removeFriendship(firstUserId, secondUserId);
+        if (friendSuggestions != null) friendSuggestions.friendshipChanged(firstUserId, secondUserId, false);
+        return result;
+    }
+
+    /**
+     * Suggest new friends for User, more mutual friends - better suggestion.
+     * @param userId User ID.
+     * @param count Max amount of suggested friends.
+     * @return List of suggested Users.
+     */
+    public List<User> showSuggestedFriends(int userId, int count) {
+        getUserById(userId);
+        if (friendSuggestions == null) return List.of();
+        int[] userIds = friendSuggestions.getSuggestedFriendIds(userId, count);
+        return storage.getUsersByIds(Arrays.stream(userIds).boxed().collect(Collectors.toList()));
     }
 
     /**
@@ -52,6 +80,36 @@ public class UserService {
 
     public List<User> getAllUsers() { return storage.getAllUsers(); }
 
+    public void forEachUser(Consumer<User> action) { storage.forEachUser(action); }
+
+    /**
+     * Get page of users ordered by ID.
+     * @param after Cursor returned with previous page or null for the first page.
+     * @param limit Size of page.
+     * @return Page of User objects with cursor of the next page.
+     */
+    public Page<User> getUsers(String after, int limit) {
+        return PageCursor.pageById(storage.getUsersAfter(PageCursor.decodeId(after), limit + 1), limit, User::getId);
+    }
+
+    /**
+     * Get version of User, which changes with every change of User or its friendships.
+     * @param id User ID.
+     * @return Version of User or empty Optional if User is not found.
+     */
+    public Optional<Long> getUserVersion(int id) {
+        return storage.getUserVersion(id);
+    }
+
+    /**
+     * Get version of User friends list, which changes with friendships of User and with every change of friends.
+     * @param id User ID.
+     * @return Version of friends list or empty Optional if User is not found.
+     */
+    public Optional<Long> getFriendsVersion(int id) {
+        return storage.getFriendsVersion(id);
+    }
+
     public User getUserById(int id) {
         return storage.getUser(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
     }
@@ -62,6 +120,8 @@ public class UserService {
 
     public User addUser(User user) { return storage.addUser(user); }
 
+    public List<User> addUsers(List<User> users) { return storage.addUsers(users); }
+
     public User updateUser(int id, User user) {
         return storage.updateUser(id, user).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
     }
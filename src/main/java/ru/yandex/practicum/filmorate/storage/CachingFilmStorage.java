@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of films by ID in front of another film storage. Every write invalidates films it
+ * changed once the write is done. Invalidation of a film waits for its load in progress, so a film read
+ * before a write can't stay in the cache after it. Films are loaded from the write data source, so a
+ * lagging replica can't put them back into the cache either. Films are copied out of the cache, changes of
+ * returned objects don't reach the cache.
+ */
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final Cache<Integer, Optional<Film>> films;
+
+    /**
+     * @param delegate Storage to read films from and write them to.
+     * @param films Cache of films by ID, missing films are cached as empty Optional.
+     */
+    public CachingFilmStorage(FilmStorage delegate, Cache<Integer, Optional<Film>> films) {
+        this.delegate = delegate;
+        this.films = films;
+    }
+
+    /**
+     * Drop cached film, for writes done past this storage.
+     * @param filmId Film ID.
+     */
+    public void invalidate(int filmId) {
+        films.invalidate(filmId);
+    }
+
+    /**
+     * Drop all cached films, for writes done past this storage.
+     */
+    public void invalidateAll() {
+        films.invalidateAll();
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        Film result = delegate.addFilm(film);
+        if (result != null) films.invalidate(result.getId());
+        return result;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        List<Film> result = delegate.addFilms(newFilms);
+        result.forEach(film -> films.invalidate(film.getId()));
+        return result;
+    }
+
+    @Override
+    public Optional<Film> removeFilm(int filmId) {
+        Optional<Film> result = delegate.removeFilm(filmId);
+        films.invalidate(filmId);
+        return result;
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+        films.invalidateAll();
+    }
+
+    @Override
+    public Optional<Film> updateFilm(int filmId, Film film) {
+        Optional<Film> result = delegate.updateFilm(filmId, film);
+        films.invalidate(filmId);
+        return result;
+    }
+
+    @Override
+    public Optional<Film> getFilm(int filmId) {
+        return films.get(filmId, id -> ReadWriteRoutingDataSource.readFromWrite(() -> delegate.getFilm(id)))
+                .map(CachingFilmStorage::copyOf);
+    }
+
+    @Override
+    public Optional<Long> getFilmVersion(int filmId) {
+        return delegate.getFilmVersion(filmId);
+    }
+
+    @Override
+    public boolean containsFilm(int filmId) {
+        Optional<Film> cached = films.getIfPresent(filmId);
+        return cached != null ? cached.isPresent() : delegate.containsFilm(filmId);
+    }
+
+    @Override
+    public List<Film> getFilms(int limit, int offset) {
+        return delegate.getFilms(limit, offset);
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        return delegate.getFilmsAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        delegate.forEachFilm(action);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        return delegate.getFilmsByIds(filmIds);
+    }
+
+    @Override
+    public Film saveFilmLike(User user, Film film) {
+        try {
+            return delegate.saveFilmLike(user, film);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Film removeFilmLike(User user, Film film) {
+        try {
+            return delegate.removeFilmLike(user, film);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> saveFilmLikes(List<int[]> added, List<int[]> removed) {
+        Map<Integer, Integer> changes = delegate.saveFilmLikes(added, removed);
+        films.invalidateAll(changes.keySet());
+        return changes;
+    }
+
+    @Override
+    public List<Film> getTopFilms(int amount) {
+        return delegate.getTopFilms(amount);
+    }
+
+    @Override
+    public Map<Integer, int[]> getFilmLikes() {
+        return delegate.getFilmLikes();
+    }
+
+    @Override
+    public Map<Integer, int[]> getFilmLikesByIds(List<Integer> filmIds) {
+        return delegate.getFilmLikesByIds(filmIds);
+    }
+
+    @Override
+    public List<Genre> getAllGenres() {
+        return delegate.getAllGenres();
+    }
+
+    @Override
+    public Optional<Genre> getGenre(int genreId) {
+        return delegate.getGenre(genreId);
+    }
+
+    @Override
+    public List<Rating> getAllRatings() {
+        return delegate.getAllRatings();
+    }
+
+    @Override
+    public Optional<Rating> getRating(int ratingId) {
+        return delegate.getRating(ratingId);
+    }
+
+    @Override
+    public long getReferenceDataVersion() {
+        return delegate.getReferenceDataVersion();
+    }
+
+    private static Film copyOf(Film film) {
+        Film result = new Film();
+        result.setId(film.getId());
+        result.setName(film.getName());
+        result.setDescription(film.getDescription());
+        result.setReleaseDate(film.getReleaseDate());
+        result.setDuration(film.getDuration());
+        result.setUsersLikedIds(new HashSet<>(film.getUsersLikedIds()));
+        result.setLikeCount(film.getLikeCount());
+        result.setVersion(film.getVersion());
+        result.setGenres(film.getGenres() != null ? new LinkedHashSet<>(film.getGenres()) : null);
+        result.setMpa(film.getMpa());
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of users by ID in front of another user storage. Every write invalidates users it
+ * changed once the write is done. Invalidation of a user waits for its load in progress, so a user read
+ * before a write can't stay in the cache after it. Users are loaded from the write data source, so a
+ * lagging replica can't put them back into the cache either. Users are copied out of the cache, changes of
+ * returned objects don't reach the cache.
+ */
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final Cache<Integer, Optional<User>> users;
+    private final Runnable usersRemoved;
+
+    /**
+     * @param delegate Storage to read users from and write them to.
+     * @param users Cache of users by ID, missing users are cached as empty Optional.
+     * @param usersRemoved Action to run after users are removed, as their likes are removed from films too.
+     */
+    public CachingUserStorage(UserStorage delegate, Cache<Integer, Optional<User>> users, Runnable usersRemoved) {
+        this.delegate = delegate;
+        this.users = users;
+        this.usersRemoved = usersRemoved;
+    }
+
+    /**
+     * Drop cached user, for writes done past this storage.
+     * @param userId User ID.
+     */
+    public void invalidate(int userId) {
+        users.invalidate(userId);
+    }
+
+    /**
+     * Drop all cached users, for writes done past this storage.
+     */
+    public void invalidateAll() {
+        users.invalidateAll();
+    }
+
+    @Override
+    public User addUser(User user) {
+        User result = delegate.addUser(user);
+        if (result != null) users.invalidate(result.getId());
+        return result;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> newUsers) {
+        List<User> result = delegate.addUsers(newUsers);
+        result.forEach(user -> users.invalidate(user.getId()));
+        return result;
+    }
+
+    @Override
+    public User removeUser(int userId) {
+        try {
+            return delegate.removeUser(userId);
+        } finally {
+            // Friends of removed user are unknown once it is gone, removal is rare enough to drop them all
+            users.invalidateAll();
+            usersRemoved.run();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        try {
+            delegate.removeAll();
+        } finally {
+            users.invalidateAll();
+            usersRemoved.run();
+        }
+    }
+
+    @Override
+    public Optional<User> updateUser(int userId, User user) {
+        Optional<User> result = delegate.updateUser(userId, user);
+        users.invalidate(userId);
+        return result;
+    }
+
+    @Override
+    public Optional<User> getUser(int userId) {
+        return users.get(userId, id -> ReadWriteRoutingDataSource.readFromWrite(() -> delegate.getUser(id)))
+                .map(CachingUserStorage::copyOf);
+    }
+
+    @Override
+    public Optional<Long> getUserVersion(int userId) {
+        return delegate.getUserVersion(userId);
+    }
+
+    @Override
+    public Optional<Long> getFriendsVersion(int userId) {
+        return delegate.getFriendsVersion(userId);
+    }
+
+    @Override
+    public Optional<List<User>> getUserFriends(int userId) {
+        return delegate.getUserFriends(userId);
+    }
+
+    @Override
+    public List<User> getUsers(int limit, int offset) {
+        return delegate.getUsers(limit, offset);
+    }
+
+    @Override
+    public List<User> getUsersAfter(int afterId, int limit) {
+        return delegate.getUsersAfter(afterId, limit);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        return delegate.getUsersByIds(userIds);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        delegate.forEachUser(action);
+    }
+
+    @Override
+    public List<User> saveFriendship(int firstUserId, int secondUserId) {
+        try {
+            return delegate.saveFriendship(firstUserId, secondUserId);
+        } finally {
+            users.invalidateAll(List.of(firstUserId, secondUserId));
+        }
+    }
+
+    @Override
+    public List<User> removeFriendship(int firstUserId, int secondUserId) {
+        try {
+            return delegate.removeFriendship(firstUserId, secondUserId);
+        } finally {
+            users.invalidateAll(List.of(firstUserId, secondUserId));
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(int firstUserId, int secondUserId) {
+        return delegate.getCommonFriends(firstUserId, secondUserId);
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendsAdjacency() {
+        return delegate.getFriendsAdjacency();
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendsAdjacencyByIds(List<Integer> userIds) {
+        return delegate.getFriendsAdjacencyByIds(userIds);
+    }
+
+    private static User copyOf(User user) {
+        User result = new User();
+        result.setId(user.getId());
+        result.setEmail(user.getEmail());
+        result.setLogin(user.getLogin());
+        result.setName(user.getName());
+        result.setBirthday(user.getBirthday());
+        result.setFriends(new HashSet<>(user.getFriends()));
+        result.setFilmsLiked(new HashSet<>(user.getFilmsLiked()));
+        result.setFriendshipStatus(new HashMap<>(user.getFriendshipStatus()));
+        return result;
+    }
+}
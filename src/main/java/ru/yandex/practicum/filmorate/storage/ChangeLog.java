@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Log of film and user changes, shared by all application nodes through the database. Db storages append
+ * entries within transactions of their writes, nodes read entries appended by other nodes to evict their
+ * local caches.
+ */
+@Component
+public class ChangeLog {
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * Type of changed entity.
+     */
+    public enum Entity {
+        FILM("SELECT film_version FROM films WHERE film_id = ?"),
+        USER("SELECT user_version FROM users WHERE user_id = ?");
+
+        private final String versionQuery;
+
+        Entity(String versionQuery) {
+            this.versionQuery = versionQuery;
+        }
+    }
+
+    /**
+     * Change of one entity or, without entity ID, of all entities of the type.
+     */
+    @Value
+    public static class Entry {
+        long id;
+        boolean local;
+        Entity entity;
+        Integer entityId;
+        Integer entityVersion;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ChangeLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Append change of entity with its current version.
+     * @param entity Type of changed entity.
+     * @param entityId ID of changed entity.
+     */
+    public void append(Entity entity, int entityId) {
+        appendAll(entity, List.of(entityId));
+    }
+
+    /**
+     * Append changes of entities with their current versions.
+     * @param entity Type of changed entities.
+     * @param entityIds IDs of changed entities.
+     */
+    public void appendAll(Entity entity, Collection<Integer> entityIds) {
+        if (entityIds.isEmpty()) return;
+        String sqlQuery = "INSERT INTO change_log (node_id, entity_type, entity_id, entity_version) " +
+                          "VALUES (?, ?, ?, (" + entity.versionQuery + "))";
+        jdbcTemplate.batchUpdate(sqlQuery, entityIds, CHUNK_SIZE, (ps, entityId) -> {
+            ps.setString(1, nodeId);
+            ps.setString(2, entity.name());
+            ps.setInt(3, entityId);
+            ps.setInt(4, entityId);
+        });
+    }
+
+    /**
+     * Append change of all entities of the type.
+     * @param entity Type of changed entities.
+     */
+    public void appendAll(Entity entity) {
+        String sqlQuery = "INSERT INTO change_log (node_id, entity_type, entity_id) VALUES (?, ?, ?)";
+        jdbcTemplate.update(sqlQuery, nodeId, entity.name(), null);
+    }
+
+    /**
+     * Get ID of the last entry.
+     * @return ID of the last entry or 0 if log is empty.
+     */
+    public long getLastId() {
+        String sqlQuery = "SELECT COALESCE(MAX(change_id), 0) FROM change_log";
+        Long lastId = jdbcTemplate.queryForObject(sqlQuery, Long.class);
+        return lastId != null ? lastId : 0;
+    }
+
+    /**
+     * Get entries following given entry ID, ordered by ID.
+     * @param afterId ID of the last entry already read, 0 to read from the first one.
+     * @param limit Max amount of entries to get.
+     * @return List of entries, could be empty.
+     */
+    public List<Entry> getEntriesAfter(long afterId, int limit) {
+        String sqlQuery = "SELECT change_id, node_id, entity_type, entity_id, entity_version " +
+                            "FROM change_log WHERE change_id > ? ORDER BY change_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToEntry, afterId, limit);
+    }
+
+    /**
+     * Remove entries older than given age, by database clock.
+     * @param age Age of entries to remove in milliseconds.
+     * @return Amount of removed entries.
+     */
+    public int removeOlderThan(long age) {
+        String sqlQuery = "DELETE FROM change_log WHERE changed_at < DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP)";
+        return jdbcTemplate.update(sqlQuery, ps -> ps.setObject(1, -age, Types.BIGINT));
+    }
+
+    private Entry mapRowToEntry(ResultSet rs, int rowNum) throws SQLException {
+        return new Entry(rs.getLong("change_id"),
+                nodeId.equals(rs.getString("node_id")),
+                Entity.valueOf(rs.getString("entity_type")),
+                rs.getObject("entity_id", Integer.class),
+                rs.getObject("entity_version", Integer.class));
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Set;
+
+/**
+ * Receives changes made by other nodes, read from change log by {@link ChangeLogPoller} once local caches
+ * are evicted, so storage reads already see them. The same change could be received more than once.
+ */
+public interface ChangeLogListener {
+    /**
+     * Handle changes of entities.
+     * @param entity Type of changed entities.
+     * @param entityIds IDs of changed entities, or null if any entity of the type could have changed.
+     */
+    void changed(ChangeLog.Entity entity, Set<Integer> entityIds);
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Evicts local cache entries changed by other nodes. Reads change log past the last entry read and
+ * evicts films and users of each entry, so staleness is bounded by the poll interval. Then passes changed
+ * films and users of each read batch to {@link ChangeLogListener} beans, which keep other in-memory copies.
+ * <p>
+ * Entry IDs are taken before commit, so an entry of a longer transaction could become visible after
+ * entries following it. Offset stops before such a gap, and entries past it are read again on next polls
+ * until the gap is filled or it is older than gap timeout, as entries of rolled back writes never appear.
+ */
+@Slf4j
+@Component
+public class ChangeLogPoller {
+    private final ChangeLog changeLog;
+    private final CachingFilmStorage films;
+    private final CachingUserStorage users;
+    private final List<ChangeLogListener> listeners;
+    private final int batchSize;
+    private final long gapTimeout;
+    private final long retention;
+    private long offset;
+    private long gapSince;
+
+    public ChangeLogPoller(ChangeLog changeLog,
+                           ObjectProvider<CachingFilmStorage> films,
+                           ObjectProvider<CachingUserStorage> users,
+                           ObjectProvider<ChangeLogListener> listeners,
+                           @Value("${filmorate.change-log.batch-size:1000}") int batchSize,
+                           @Value("${filmorate.change-log.gap-timeout:10000}") long gapTimeout,
+                           @Value("${filmorate.change-log.retention:86400000}") long retention) {
+        this.changeLog = changeLog;
+        this.films = films.getIfAvailable();
+        this.users = users.getIfAvailable();
+        this.listeners = listeners.orderedStream().collect(Collectors.toList());
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+        this.offset = changeLog.getLastId();
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Read new entries of change log, evict changed films and users from local caches and pass them
+     * to listeners.
+     */
+    @Scheduled(initialDelayString = "${filmorate.change-log.poll-interval:1000}",
+            fixedDelayString = "${filmorate.change-log.poll-interval:1000}")
+    public synchronized void poll() {
+        if (films == null && users == null && listeners.isEmpty()) return;
+        List<ChangeLog.Entry> entries;
+        do {
+            entries = changeLog.getEntriesAfter(offset, batchSize);
+            long contiguous = offset;
+            Map<ChangeLog.Entity, Set<Integer>> changed = new EnumMap<>(ChangeLog.Entity.class);
+            for (ChangeLog.Entry entry : entries) {
+                // Log read from the start could begin with any ID, as old entries are removed
+                if (entry.getId() == contiguous + 1 || contiguous == 0) contiguous = entry.getId();
+                if (!entry.isLocal()) {
+                    evict(entry);
+                    collect(changed, entry);
+                }
+            }
+            changed.forEach((entity, entityIds) -> listeners.forEach(l -> l.changed(entity, entityIds)));
+            if (entries.isEmpty()) return;
+
+            long lastId = entries.get(entries.size() - 1).getId();
+            if (contiguous != lastId) {
+                if (gapSince == 0) gapSince = System.currentTimeMillis();
+                if (System.currentTimeMillis() - gapSince <= gapTimeout) {
+                    offset = contiguous;
+                    return;
+                }
+                log.info("Change log entries missing after {} are skipped", contiguous);
+            }
+            gapSince = 0;
+            offset = lastId;
+        } while (entries.size() == batchSize);
+    }
+
+    /**
+     * Remove entries older than retention period.
+     */
+    @Scheduled(initialDelayString = "${filmorate.change-log.cleanup-interval:3600000}",
+            fixedDelayString = "${filmorate.change-log.cleanup-interval:3600000}")
+    public void cleanup() {
+        int removed = changeLog.removeOlderThan(retention);
+        if (removed > 0) log.info("{} change log entries removed", removed);
+    }
+
+    /**
+     * Add entity of entry to changed ones, null set stands for all entities of the type.
+     */
+    private static void collect(Map<ChangeLog.Entity, Set<Integer>> changed, ChangeLog.Entry entry) {
+        if (changed.containsKey(entry.getEntity()) && changed.get(entry.getEntity()) == null) return;
+        if (entry.getEntityId() == null) {
+            changed.put(entry.getEntity(), null);
+        } else {
+            changed.computeIfAbsent(entry.getEntity(), entity -> new HashSet<>()).add(entry.getEntityId());
+        }
+    }
+
+    private void evict(ChangeLog.Entry entry) {
+        if (entry.getEntity() == ChangeLog.Entity.FILM && films != null) {
+            if (entry.getEntityId() == null) films.invalidateAll(); else films.invalidate(entry.getEntityId());
+        } else if (entry.getEntity() == ChangeLog.Entity.USER && users != null) {
+            if (entry.getEntityId() == null) users.invalidateAll(); else users.invalidate(entry.getEntityId());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * JdbcTemplate counting statements, rows and database time of the current thread in {@link QueryCounter}.
+ * Every statement is counted once, a batch too. Rows are counted from query results: size of list or map,
+ * one row for any other result, and each row passed to a row callback handler. Time of a statement lasts
+ * till its results are read and is not counted for failed statements.
+ */
+public class CountingJdbcTemplate extends JdbcTemplate {
+    public CountingJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        QueryCounter.current().statementStarted();
+    }
+
+    @Override
+    protected void handleWarnings(Statement stmt) throws SQLException {
+        QueryCounter.current().statementFinished();
+        super.handleWarnings(stmt);
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+        return countRows(super.query(psc, pss, rse));
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) {
+        return countRows(super.query(sql, rse));
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch) {
+        super.query(sql, countingRows(rch));
+    }
+
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+        super.query(sql, pss, countingRows(rch));
+    }
+
+    @Override
+    public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+        super.query(psc, countingRows(rch));
+    }
+
+    private static <T> T countRows(T result) {
+        long rows;
+        if (result == null) {
+            rows = 0;
+        } else if (result instanceof Collection) {
+            rows = ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            rows = ((Map<?, ?>) result).size();
+        } else {
+            rows = 1;
+        }
+        QueryCounter.current().rowsReturned(rows);
+        return result;
+    }
+
+    private static RowCallbackHandler countingRows(RowCallbackHandler rch) {
+        return rs -> {
+            QueryCounter.current().rowsReturned(1);
+            rch.processRow(rs);
+        };
+    }
+}
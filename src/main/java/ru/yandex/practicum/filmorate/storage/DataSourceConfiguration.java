@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pools of the database: write pool configured as the default Spring Boot one, and read pool of
+ * read-only transactions with the same settings, except for its own URL, credentials and size when set.
+ * Without URL of a replica the read pool connects to the same database, which only separates the load.
+ * Storages use {@link ReadWriteRoutingDataSource} over both pools unless the read pool is disabled.
+ */
+@Slf4j
+@Configuration
+public class DataSourceConfiguration {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.datasource.read.enabled", havingValue = "true", matchIfMissing = true)
+    public HikariDataSource readDataSource(@Qualifier("writeDataSource") HikariDataSource writeDataSource,
+                                           @Value("${filmorate.datasource.read.url:}") String url,
+                                           @Value("${filmorate.datasource.read.username:}") String username,
+                                           @Value("${filmorate.datasource.read.password:}") String password,
+                                           @Value("${filmorate.datasource.read.maximum-pool-size:0}") int maximumPoolSize,
+                                           @Value("${filmorate.datasource.read.pool-name:read}") String poolName) {
+        HikariConfig config = new HikariConfig();
+        writeDataSource.copyStateTo(config);
+        if (!url.isEmpty()) {
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+        }
+        if (maximumPoolSize > 0) config.setMaximumPoolSize(maximumPoolSize);
+        config.setPoolName(poolName);
+        config.setReadOnly(true);
+        HikariDataSource readDataSource = new HikariDataSource(config);
+        log.info("Read data source {} of {} connections", url.isEmpty() ? "on write database" : url,
+                readDataSource.getMaximumPoolSize());
+        return readDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") HikariDataSource writeDataSource,
+                                 @Qualifier("readDataSource") ObjectProvider<HikariDataSource> readDataSource) {
+        HikariDataSource read = readDataSource.getIfAvailable();
+        if (read == null) return writeDataSource;
+        return ReadWriteRoutingDataSource.create(writeDataSource, read);
+    }
+}
@@ -1,10 +1,12 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -13,181 +15,338 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @Component
 @Qualifier("dBFilmStorage")
 public class DbFilmStorage implements FilmStorage {
+    private static final int CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
+    private final StatementRegistry statements;
+    private final ChangeLog changeLog;
 
-    public DbFilmStorage(JdbcTemplate jdbcTemplate) {
+    public DbFilmStorage(JdbcTemplate jdbcTemplate, ReferenceDataRegistry referenceData, StatementRegistry statements,
+                         ChangeLog changeLog, @Value("${filmorate.streaming.fetch-size:500}") int fetchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
+        this.statements = statements;
+        this.changeLog = changeLog;
+        this.streamingJdbcTemplate = new CountingJdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
     }
 
     @Override
+    @Transactional
     public Film addFilm(Film film) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
-        int filmId = simpleJdbcInsert.executeAndReturnKey(film.toMap()).intValue();
-
-        if (film.getGenres() != null) {
-            SimpleJdbcInsert secondSimpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("film_genres")
-                    .usingColumns("film_id", "genre_id");
-            film.getGenres().forEach(g -> secondSimpleJdbcInsert.execute(Map.of("film_id", filmId,
-                    "genre_id", g.getId())));
-        }
+        int filmId = statements.filmInsert().insert(jdbcTemplate, film);
+        if (film.getGenres() != null) insertFilmGenres(filmId, getGenreIds(film));
+        changeLog.append(ChangeLog.Entity.FILM, filmId);
         return getFilmById(filmId);
     }
 
     @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) return films;
+        statements.filmInsert().insertAll(jdbcTemplate, films, Film::setId);
+
+        List<int[]> filmGenres = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) getGenreIds(film).forEach(genreId -> filmGenres.add(new int[] {film.getId(), genreId}));
+        }
+        String sqlQueryGenres = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sqlQueryGenres, filmGenres, CHUNK_SIZE, (ps, filmGenre) -> {
+            ps.setInt(1, filmGenre[0]);
+            ps.setInt(2, filmGenre[1]);
+        });
+        changeLog.appendAll(ChangeLog.Entity.FILM, films.stream().map(Film::getId).collect(Collectors.toList()));
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Optional<Film> removeFilm(int filmId) {
-        String sqlQuerySearch = "SELECT film_id, film_name, film_description, film_release_date, film_duration " +
-                "FROM films WHERE film_id = ?";
-        Optional<Film> result = Optional.ofNullable(
-                jdbcTemplate.queryForObject(sqlQuerySearch, this::mapRowToFilm, filmId)
-        );
-        String sqlQuery = "DELETE FROM films WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery, filmId);
-        return result;
+        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, " +
+                                 "film_rating_id, like_count, film_version " +
+                            "FROM OLD TABLE (DELETE FROM films WHERE film_id = ?)";
+        Optional<Film> removed = jdbcTemplate.query(sqlQuery, this::mapRowToFilm, filmId).stream().findFirst();
+        if (removed.isPresent()) changeLog.append(ChangeLog.Entity.FILM, filmId);
+        return removed;
     }
 
     @Override
+    @Transactional
     public void removeAll() {
         String sqlQuery = "DELETE FROM films";
         jdbcTemplate.update(sqlQuery);
+        changeLog.appendAll(ChangeLog.Entity.FILM);
     }
 
     @Override
+    @Transactional
     public Optional<Film> updateFilm(int filmId, Film film) {
-        try {
-            String sqlQuerySearch = "SELECT film_id, film_name, film_description, film_release_date, film_duration, film_rating_id " +
-                    "FROM films WHERE film_id = ?";
-            jdbcTemplate.queryForObject(sqlQuerySearch, this::mapRowToFilm, filmId);
-        } catch (EmptyResultDataAccessException e) {
+        if (statements.filmUpdate().update(jdbcTemplate, filmId, film) == 0) {
             return Optional.empty();
         }
+        changeLog.append(ChangeLog.Entity.FILM, filmId);
 
-        String sqlQuery = "UPDATE films SET film_name = ?, film_description = ?, film_release_date = ?, film_duration = ?, film_rating_id = ? WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId(), film.getId());
-
-        if (film.getGenres() != null) {
-            String sqlQueryGenresRemove = "DELETE FROM film_genres WHERE film_id = ?";
-            jdbcTemplate.update(sqlQueryGenresRemove, filmId);
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("film_genres")
-                    .usingColumns("film_id", "genre_id");
-            film.getGenres().forEach(g -> simpleJdbcInsert.execute(Map.of("film_id", filmId, "genre_id", g.getId())));
-        }
+        Film result = new Film();
+        result.setId(filmId);
+        result.setName(film.getName());
+        result.setDescription(film.getDescription());
+        result.setReleaseDate(film.getReleaseDate());
+        result.setDuration(film.getDuration());
+        result.setMpa(resolveRating(film.getMpa().getId()));
+        if (film.getGenres() == null) return Optional.of(loadGenres(List.of(result)).get(0));
 
-        Optional<Film> result = getFilm(filmId);
-        if (film.getGenres() != null) {
-            if (film.getGenres().isEmpty()) result.get().setGenres(new HashSet<>());
-        }
-        return result;
+        Set<Integer> genreIds = new TreeSet<>(getGenreIds(film));
+        replaceFilmGenres(filmId, genreIds);
+        result.setGenres(genreIds.stream().map(this::resolveGenre).collect(Collectors.toCollection(LinkedHashSet::new)));
+        return Optional.of(result);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Film> getFilm(int filmId) {
-        try {
-            String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, film_rating_id " +
-                    "FROM films WHERE film_id = ?";
-            Optional<Film> result = Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, this::mapRowToFilm, filmId));
-
-            if (result.isPresent()) {
-                Film film = result.get();
-
-                String sqlQueryGenres = "SELECT g.genre_id, g.genre_name FROM film_genres AS fg " +
-                        "JOIN genres AS g ON g.genre_id = fg.genre_id WHERE fg.film_id = ?";
-                List<Genre> genres = jdbcTemplate.query(sqlQueryGenres, this::mapRowToGenre, filmId);
-                if (genres.size() > 0) {
-                    film.setGenres(new HashSet<>());
-                    genres.forEach(g -> film.getGenres().add(g));
-                }
+        String sqlQuery = "SELECT f.film_id, f.film_name, f.film_description, f.film_release_date, f.film_duration, " +
+                                 "f.film_rating_id, f.like_count, f.film_version, fg.genre_id " +
+                            "FROM films AS f " +
+                                 "LEFT JOIN film_genres AS fg ON fg.film_id = f.film_id " +
+                           "WHERE f.film_id = ? " +
+                           "ORDER BY fg.genre_id";
+        return jdbcTemplate.query(sqlQuery, this::extractFilms, filmId).stream().findFirst();
+    }
 
-                String sqlQueryRating = "SELECT rating_id, rating_name FROM ratings WHERE rating_id = ?";
-                Optional<Rating> rating = Optional.ofNullable(
-                        jdbcTemplate.queryForObject(sqlQueryRating, this::mapRowToRating, film.getMpa().getId())
-                );
-                rating.ifPresent(film::setMpa);
-                return Optional.of(film);
-            }
-            return result;
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> getFilmVersion(int filmId) {
+        String sqlQuery = "SELECT film_version FROM films WHERE film_id = ?";
+        return jdbcTemplate.queryForList(sqlQuery, Long.class, filmId).stream().findFirst();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public boolean containsFilm(int filmId) {
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, filmId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Film> getFilms(int limit, int offset) {
-        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration FROM films LIMIT ? OFFSET ?";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, limit, offset);
+        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, " +
+                                 "film_rating_id, like_count, film_version " +
+                            "FROM films " +
+                           "ORDER BY film_id LIMIT ? OFFSET ?";
+        return loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, limit, offset));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, " +
+                                 "film_rating_id, like_count, film_version " +
+                            "FROM films " +
+                           "WHERE film_id > ? " +
+                           "ORDER BY film_id LIMIT ?";
+        return loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, afterId, limit));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Film> getAllFilms() {
-        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration FROM films";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
+        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, " +
+                                 "film_rating_id, like_count, film_version " +
+                            "FROM films " +
+                           "ORDER BY film_id";
+        return loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void forEachFilm(Consumer<Film> action) {
+        String sqlQuery = "SELECT f.film_id, f.film_name, f.film_description, f.film_release_date, f.film_duration, " +
+                                 "f.film_rating_id, f.like_count, f.film_version, fg.genre_id " +
+                            "FROM films AS f " +
+                                 "LEFT JOIN film_genres AS fg ON fg.film_id = f.film_id " +
+                           "ORDER BY f.film_id, fg.genre_id";
+        streamingJdbcTemplate.query(sqlQuery, (ResultSetExtractor<Void>) resultSet -> {
+            Film film = null;
+            while (resultSet.next()) {
+                int filmId = resultSet.getInt("film_id");
+                if (film == null || film.getId() != filmId) {
+                    if (film != null) action.accept(film);
+                    film = mapRowToFilm(resultSet, 0);
+                }
+                addGenre(film, resultSet);
+            }
+            if (film != null) action.accept(film);
+            return null;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int from = 0; from < filmIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = filmIds.subList(from, Math.min(from + CHUNK_SIZE, filmIds.size()));
+            String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, " +
+                                     "film_rating_id, like_count, film_version " +
+                                "FROM films " +
+                               "WHERE film_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, this::mapRowToFilm, chunk.toArray()).forEach(f -> filmsById.put(f.getId(), f));
+        }
+        List<Film> result = new ArrayList<>(filmsById.size());
+        filmIds.stream().distinct().map(filmsById::get).filter(Objects::nonNull).forEach(result::add);
+        return loadGenres(result);
+    }
+
+    @Override
+    @Transactional
     public Film saveFilmLike(User user, Film film) {
-        String sqlQuery = "INSERT INTO films_liked (user_id, film_id) VALUES (?, ?)";
-        jdbcTemplate.update(sqlQuery, user.getId(), film.getId());
-        return getFilmById(film.getId());
+        String sqlQuery = "INSERT INTO films_liked (user_id, film_id) SELECT ?, ? " +
+                          "WHERE NOT EXISTS (SELECT 1 FROM films_liked WHERE user_id = ? AND film_id = ?)";
+        if (jdbcTemplate.update(sqlQuery, user.getId(), film.getId(), user.getId(), film.getId()) > 0) {
+            changeLikeCount(film, 1);
+        }
+        return film;
     }
 
     @Override
+    @Transactional
     public Film removeFilmLike(User user, Film film) {
-        String sqlQuery = "DELETE FROM films_liked WHERE (user_id, film_id) IN ((?, ?))";
-        jdbcTemplate.update(sqlQuery, user.getId(), film.getId());
-        return getFilmById(film.getId());
+        String sqlQuery = "DELETE FROM films_liked WHERE user_id = ? AND film_id = ?";
+        if (jdbcTemplate.update(sqlQuery, user.getId(), film.getId()) > 0) {
+            changeLikeCount(film, -1);
+        }
+        return film;
     }
 
     @Override
+    @Transactional
+    public Map<Integer, Integer> saveFilmLikes(List<int[]> added, List<int[]> removed) {
+        Map<Integer, Integer> changes = new HashMap<>();
+        String sqlQueryAdd = "INSERT INTO films_liked (user_id, film_id) " +
+                             "SELECT u.user_id, f.film_id " +
+                               "FROM users AS u, films AS f " +
+                              "WHERE u.user_id = ? AND f.film_id = ? " +
+                                "AND NOT EXISTS (SELECT 1 FROM films_liked AS fl " +
+                                                "WHERE fl.user_id = u.user_id AND fl.film_id = f.film_id)";
+        countLikeChanges(changes, added, 1, jdbcTemplate.batchUpdate(sqlQueryAdd, added, CHUNK_SIZE, (ps, like) -> {
+            ps.setInt(1, like[0]);
+            ps.setInt(2, like[1]);
+        }));
+        String sqlQueryRemove = "DELETE FROM films_liked WHERE user_id = ? AND film_id = ?";
+        countLikeChanges(changes, removed, -1, jdbcTemplate.batchUpdate(sqlQueryRemove, removed, CHUNK_SIZE, (ps, like) -> {
+            ps.setInt(1, like[0]);
+            ps.setInt(2, like[1]);
+        }));
+
+        changes.values().removeIf(delta -> delta == 0);
+        String sqlQueryCount = "UPDATE films SET like_count = like_count + ?, film_version = film_version + 1 WHERE film_id = ?";
+        jdbcTemplate.batchUpdate(sqlQueryCount, changes.entrySet(), CHUNK_SIZE, (ps, change) -> {
+            ps.setInt(1, change.getValue());
+            ps.setInt(2, change.getKey());
+        });
+        changeLog.appendAll(ChangeLog.Entity.FILM, changes.keySet());
+        return changes;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Film> getTopFilms(int amount) {
-        String sqlQuery = "SELECT f.film_id, film_name, film_description, film_release_date, film_duration, film_rating_id " +
-                            "FROM films AS f " +
-                                 "LEFT JOIN films_liked AS fl " +
-                                      "ON f.film_id = fl.film_id " +
-                           "GROUP BY f.film_id " +
-                           "ORDER BY COUNT(DISTINCT fl.user_id) DESC LIMIT ?";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, amount);
+        String sqlQuery = "SELECT film_id, film_name, film_description, film_release_date, film_duration, " +
+                                 "film_rating_id, like_count, film_version " +
+                            "FROM films " +
+                           "ORDER BY like_count DESC, film_name, film_id LIMIT ?";
+        return loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, amount));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, int[]> getFilmLikes() {
+        Map<Integer, int[]> result = new HashMap<>();
+        String sqlQuery = "SELECT film_id, user_id FROM films_liked ORDER BY film_id, user_id";
+        streamingJdbcTemplate.query(sqlQuery, (ResultSetExtractor<Void>) resultSet -> {
+            int filmId = 0;
+            int[] userIds = new int[16];
+            int size = 0;
+            while (resultSet.next()) {
+                int rowFilmId = resultSet.getInt("film_id");
+                if (size > 0 && rowFilmId != filmId) {
+                    result.put(filmId, Arrays.copyOf(userIds, size));
+                    size = 0;
+                }
+                filmId = rowFilmId;
+                if (size == userIds.length) userIds = Arrays.copyOf(userIds, size * 2);
+                userIds[size++] = resultSet.getInt("user_id");
+            }
+            if (size > 0) result.put(filmId, Arrays.copyOf(userIds, size));
+            return null;
+        });
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, int[]> getFilmLikesByIds(List<Integer> filmIds) {
+        Map<Integer, List<Integer>> userIdsByFilm = new HashMap<>();
+        for (int from = 0; from < filmIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = filmIds.subList(from, Math.min(from + CHUNK_SIZE, filmIds.size()));
+            String sqlQuery = "SELECT film_id, user_id FROM films_liked " +
+                               "WHERE film_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, (RowCallbackHandler) resultSet ->
+                    userIdsByFilm.computeIfAbsent(resultSet.getInt("film_id"), id -> new ArrayList<>())
+                            .add(resultSet.getInt("user_id")), chunk.toArray());
+        }
+        Map<Integer, int[]> result = new HashMap<>();
+        userIdsByFilm.forEach((filmId, userIds) -> result.put(filmId, SortedIntArrays.of(userIds)));
+        return result;
     }
 
     @Override
     public List<Genre> getAllGenres() {
-        String sqlQuery = "SELECT genre_id, genre_name FROM genres";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
+        return referenceData.getAllGenres();
     }
 
     @Override
     public Optional<Genre> getGenre(int genreId) {
-        try {
-            String sqlQuery = "SELECT genre_id, genre_name FROM genres WHERE genre_id = ?";
-            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, this::mapRowToGenre, genreId));
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(referenceData.getGenre(genreId));
     }
 
     @Override
     public List<Rating> getAllRatings() {
-        String sqlQuery = "SELECT rating_id, rating_name FROM ratings";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToRating);
+        return referenceData.getAllRatings();
     }
 
     @Override
     public Optional<Rating> getRating(int ratingId) {
-        try {
-            String sqlQuery = "SELECT rating_id, rating_name FROM ratings WHERE rating_id = ?";
-            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, this::mapRowToRating, ratingId));
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(referenceData.getRating(ratingId));
+    }
+
+    @Override
+    public long getReferenceDataVersion() {
+        return referenceData.getVersion();
     }
 
     private Film mapRowToFilm(ResultSet resultSet, int rowNum) throws SQLException {
@@ -197,26 +356,143 @@ public class DbFilmStorage implements FilmStorage {
         result.setDescription(resultSet.getString("film_description"));
         result.setReleaseDate(resultSet.getDate("film_release_date").toLocalDate());
         result.setDuration(resultSet.getInt("film_duration"));
-        Rating rating = new Rating();
-        rating.setId(resultSet.getInt("film_rating_id"));
-        result.setMpa(rating);
+        result.setMpa(resolveRating(resultSet.getInt("film_rating_id")));
+        result.setLikeCount(resultSet.getInt("like_count"));
+        result.setVersion(resultSet.getLong("film_version"));
         return result;
     }
 
-    private Genre mapRowToGenre(ResultSet resultSet, int rowNum) throws SQLException {
-        Genre result = new Genre();
-        result.setId(resultSet.getInt("genre_id"));
-        result.setName(resultSet.getString("genre_name"));
-        return result;
+    /**
+     * Fold joined film and genre rows into Film objects, one row per film genre.
+     * @param resultSet Rows ordered so that rows of the same film come together.
+     * @return List of Film objects in order of their first row.
+     */
+    private List<Film> extractFilms(ResultSet resultSet) throws SQLException {
+        Map<Integer, Film> films = new LinkedHashMap<>();
+        while (resultSet.next()) {
+            int filmId = resultSet.getInt("film_id");
+            Film film = films.get(filmId);
+            if (film == null) {
+                film = mapRowToFilm(resultSet, films.size());
+                films.put(filmId, film);
+            }
+            addGenre(film, resultSet);
+        }
+        return new ArrayList<>(films.values());
     }
 
-    private Rating mapRowToRating(ResultSet resultSet, int rowNum) throws SQLException {
-        Rating result = new Rating();
-        result.setId(resultSet.getInt("rating_id"));
-        result.setName(resultSet.getString("rating_name"));
+    private void addGenre(Film film, ResultSet resultSet) throws SQLException {
+        int genreId = resultSet.getInt("genre_id");
+        if (resultSet.wasNull()) return;
+        if (film.getGenres() == null) film.setGenres(new LinkedHashSet<>());
+        film.getGenres().add(resolveGenre(genreId));
+    }
+
+    private void countLikeChanges(Map<Integer, Integer> changes, List<int[]> likes, int delta, int[][] updateCounts) {
+        int i = 0;
+        for (int[] chunkCounts : updateCounts) {
+            for (int count : chunkCounts) {
+                if (count > 0) changes.merge(likes.get(i)[1], delta, Integer::sum);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Change like counter of film. The updated row stays locked until commit, so the counter and version
+     * read back in the same transaction are exact.
+     * @param film Film object to set new like counter and version to.
+     * @param delta Value to add to like counter.
+     */
+    private void changeLikeCount(Film film, int delta) {
+        String sqlQuery = "UPDATE films SET like_count = like_count + ?, film_version = film_version + 1 WHERE film_id = ?";
+        jdbcTemplate.update(sqlQuery, delta, film.getId());
+        changeLog.append(ChangeLog.Entity.FILM, film.getId());
+        String sqlQueryCount = "SELECT like_count, film_version FROM films WHERE film_id = ?";
+        jdbcTemplate.query(sqlQueryCount, resultSet -> {
+            film.setLikeCount(resultSet.getInt("like_count"));
+            film.setVersion(resultSet.getLong("film_version"));
+        }, film.getId());
+    }
+
+    /**
+     * Attach genres to already loaded films with one query per chunk of film IDs.
+     * @param films Films without genres, as loaded by list queries.
+     * @return Same list of Film objects with genres set.
+     */
+    private List<Film> loadGenres(List<Film> films) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        films.forEach(f -> filmsById.put(f.getId(), f));
+        List<Integer> filmIds = new ArrayList<>(filmsById.keySet());
+
+        for (int from = 0; from < filmIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = filmIds.subList(from, Math.min(from + CHUNK_SIZE, filmIds.size()));
+            String sqlQuery = "SELECT film_id, genre_id FROM film_genres " +
+                               "WHERE film_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") " +
+                               "ORDER BY film_id, genre_id";
+            jdbcTemplate.query(sqlQuery, resultSet -> {
+                Film film = filmsById.get(resultSet.getInt("film_id"));
+                if (film.getGenres() == null) film.setGenres(new LinkedHashSet<>());
+                film.getGenres().add(resolveGenre(resultSet.getInt("genre_id")));
+            }, chunk.toArray());
+        }
+        return films;
+    }
+
+    private Set<Integer> getGenreIds(Film film) {
+        Set<Integer> result = new LinkedHashSet<>();
+        film.getGenres().forEach(g -> result.add(g.getId()));
         return result;
     }
 
+    private void insertFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) return;
+        String sqlQuery = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sqlQuery, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
+    /**
+     * Make stored genres of a film match the given ones: delete genres which are gone and insert missing
+     * ones, leaving genres which stay untouched, so re-sending an unchanged film writes no genre rows.
+     * @param filmId Film ID.
+     * @param genreIds Genre IDs the film should have.
+     */
+    private void replaceFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            String sqlQuery = "DELETE FROM film_genres WHERE film_id = ?";
+            jdbcTemplate.update(sqlQuery, filmId);
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(filmId);
+        args.addAll(genreIds);
+        String sqlQueryDelete = "DELETE FROM film_genres " +
+                                 "WHERE film_id = ? " +
+                                   "AND genre_id NOT IN (" + String.join(", ", Collections.nCopies(genreIds.size(), "?")) + ")";
+        jdbcTemplate.update(sqlQueryDelete, args.toArray());
+        String sqlQueryInsert = "INSERT INTO film_genres (film_id, genre_id) SELECT ?, ? " +
+                                "WHERE NOT EXISTS (SELECT 1 FROM film_genres WHERE film_id = ? AND genre_id = ?)";
+        jdbcTemplate.batchUpdate(sqlQueryInsert, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+            ps.setInt(3, filmId);
+            ps.setInt(4, genreId);
+        });
+    }
+
+    private Genre resolveGenre(int genreId) {
+        Genre genre = referenceData.getGenre(genreId);
+        return genre != null ? genre : new Genre(genreId, null);
+    }
+
+    private Rating resolveRating(int ratingId) {
+        Rating rating = referenceData.getRating(ratingId);
+        return rating != null ? rating : new Rating(ratingId, null);
+    }
+
     private Film getFilmById(int id) {
         return getFilm(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find film"));
     }
@@ -1,83 +1,128 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import ru.yandex.practicum.filmorate.model.User;
 
-import java.sql.Date;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @Component
 @Qualifier("dbUserStorage")
 public class DbUserStorage implements UserStorage {
+    private static final int CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final StatementRegistry statements;
+    private final ChangeLog changeLog;
 
-    public DbUserStorage(JdbcTemplate jdbcTemplate) {
+    public DbUserStorage(JdbcTemplate jdbcTemplate, StatementRegistry statements, ChangeLog changeLog,
+                         @Value("${filmorate.streaming.fetch-size:500}") int fetchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.statements = statements;
+        this.changeLog = changeLog;
+        this.streamingJdbcTemplate = new CountingJdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
     }
 
     @Override
+    @Transactional
     public User addUser(User user) {
         if (user.getName().isBlank()) user.setName(user.getLogin());
-
-        String sqlQuery = "INSERT INTO users (user_email, user_login, user_name, user_birthday) VALUES (?, ?, ?, ?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(sqlQuery, new String[]{"user_id"});
-            stmt.setString(1, user.getEmail());
-            stmt.setString(2, user.getLogin());
-            stmt.setString(3, user.getName());
-            stmt.setDate(4, Date.valueOf(user.getBirthday()));
-            return stmt;
-        }, keyHolder);
-        int userId = keyHolder.getKey().intValue();
+        int userId = statements.userInsert().insert(jdbcTemplate, user);
+        changeLog.append(ChangeLog.Entity.USER, userId);
         String sqlQuerySearch = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users WHERE user_id = ?";
         return jdbcTemplate.queryForObject(sqlQuerySearch, this::mapRowToUser, userId);
     }
 
     @Override
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        users.forEach(user -> {
+            if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
+        });
+        statements.userInsert().insertAll(jdbcTemplate, users, User::setId);
+        changeLog.appendAll(ChangeLog.Entity.USER, users.stream().map(User::getId).collect(Collectors.toList()));
+        return users;
+    }
+
+    @Override
+    @Transactional
     public User removeUser(int userId) {
-        String sqlQuerySearch = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users WHERE user_id = ?";
-        Optional<User> result = Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuerySearch, this::mapRowToUser, userId));
-        if (result.isEmpty()) return null;
-        String sqlQuery = "DELETE FROM users where user_id = ?";
-        jdbcTemplate.update(sqlQuery, userId);
-        return result.get();
+        String sqlQueryLiked = "SELECT film_id FROM films_liked WHERE user_id = ?";
+        List<Integer> likedFilmIds = jdbcTemplate.queryForList(sqlQueryLiked, Integer.class, userId);
+        String sqlQueryFollowers = "SELECT from_id FROM friendships WHERE to_id = ?";
+        List<Integer> changedUserIds = jdbcTemplate.queryForList(sqlQueryFollowers, Integer.class, userId);
+
+        String sqlQueryLikes = "UPDATE films SET like_count = like_count - 1, film_version = film_version + 1 " +
+                "WHERE film_id IN (SELECT film_id FROM films_liked WHERE user_id = ?)";
+        jdbcTemplate.update(sqlQueryLikes, userId);
+        String sqlQueryVersions = "UPDATE users SET user_version = user_version + 1 " +
+                "WHERE user_id IN (SELECT from_id FROM friendships WHERE to_id = ?)";
+        jdbcTemplate.update(sqlQueryVersions, userId);
+        String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday " +
+                          "FROM OLD TABLE (DELETE FROM users WHERE user_id = ?)";
+        User removed = jdbcTemplate.query(sqlQuery, this::mapRowToUser, userId).stream().findFirst().orElse(null);
+        if (removed == null) return null;
+
+        changedUserIds.add(userId);
+        changeLog.appendAll(ChangeLog.Entity.USER, changedUserIds);
+        changeLog.appendAll(ChangeLog.Entity.FILM, likedFilmIds);
+        return removed;
     }
 
     @Override
+    @Transactional
     public void removeAll() {
+        String sqlQueryLiked = "SELECT film_id FROM films WHERE like_count <> 0";
+        List<Integer> likedFilmIds = jdbcTemplate.queryForList(sqlQueryLiked, Integer.class);
         String sqlQuery = "DELETE FROM users";
         jdbcTemplate.update(sqlQuery);
+        String sqlQueryLikes = "UPDATE films SET like_count = 0, film_version = film_version + 1 WHERE like_count <> 0";
+        jdbcTemplate.update(sqlQueryLikes);
+        changeLog.appendAll(ChangeLog.Entity.USER);
+        changeLog.appendAll(ChangeLog.Entity.FILM, likedFilmIds);
     }
 
     @Override
+    @Transactional
     public Optional<User> updateUser(int userId, User user) {
-        try {
-            String sqlQuerySearch = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users WHERE user_id = ?";
-            User result = jdbcTemplate.queryForObject(sqlQuerySearch, this::mapRowToUser, userId);
-        } catch (EmptyResultDataAccessException e) {
+        if (statements.userUpdate().update(jdbcTemplate, userId, user) == 0) {
             return Optional.empty();
         }
-        String sqlQuery = "UPDATE users SET user_email = ?, user_login = ?, user_name = ?, user_birthday = ? WHERE user_id = ?";
-        jdbcTemplate.update(sqlQuery, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), userId);
-        String sqlQuerySecondSearch = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users WHERE user_id = ?";
-        return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuerySecondSearch, this::mapRowToUser, userId));
+        changeLog.append(ChangeLog.Entity.USER, userId);
+        User result = new User();
+        result.setId(userId);
+        result.setEmail(user.getEmail());
+        result.setLogin(user.getLogin());
+        result.setName(user.getName());
+        result.setBirthday(user.getBirthday());
+        return Optional.of(result);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<User> getUser(int userId) {
         try {
             String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users WHERE user_id = ?";
@@ -88,6 +133,30 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> getUserVersion(int userId) {
+        String sqlQuery = "SELECT user_version FROM users WHERE user_id = ?";
+        return jdbcTemplate.queryForList(sqlQuery, Long.class, userId).stream().findFirst();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> getFriendsVersion(int userId) {
+        // Versions only grow: a change of friends set bumps user version, a change of any friend grows the sum
+        String sqlQuery = "SELECT u.user_version, " +
+                                 "(SELECT COALESCE(SUM(fu.user_version), 0) " +
+                                    "FROM friendships AS f " +
+                                         "JOIN users AS fu ON fu.user_id = f.to_id " +
+                                   "WHERE f.from_id = u.user_id AND f.is_approved = true) AS friends_version " +
+                            "FROM users AS u " +
+                           "WHERE u.user_id = ?";
+        return jdbcTemplate.query(sqlQuery, (resultSet, rowNum) ->
+                        resultSet.getLong("user_version") << 32 | (resultSet.getLong("friends_version") & 0xFFFFFFFFL), userId)
+                .stream().findFirst();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<List<User>> getUserFriends(int userId) {
         try {
             String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users WHERE user_id IN " +
@@ -99,39 +168,72 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getUsers(int limit, int offset) {
         String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users LIMIT ? OFFSET ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser, limit, offset);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<User> getUsersAfter(int afterId, int limit) {
+        String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday " +
+                          "FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users";
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + CHUNK_SIZE, userIds.size()));
+            String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users " +
+                              "WHERE user_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, this::mapRowToUser, chunk.toArray()).forEach(u -> usersById.put(u.getId(), u));
+        }
+        List<User> result = new ArrayList<>(usersById.size());
+        userIds.stream().distinct().map(usersById::get).filter(Objects::nonNull).forEach(result::add);
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<User> action) {
+        String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday FROM users ORDER BY user_id";
+        streamingJdbcTemplate.query(sqlQuery, (RowCallbackHandler) resultSet -> action.accept(mapRowToUser(resultSet, 0)));
+    }
+
+    @Override
+    @Transactional
     public List<User> saveFriendship(int firstUserId, int secondUserId) {
-        User first = getUserById(firstUserId);
-        User second = getUserById(secondUserId);
-        String sqlQuery = "INSERT INTO friendships VALUES (?, ?, true)";
+        List<User> users = getUsersById(firstUserId, secondUserId);
+        String sqlQuery = "MERGE INTO friendships (from_id, to_id, is_approved) KEY (from_id, to_id) VALUES (?, ?, true)";
         jdbcTemplate.update(sqlQuery, firstUserId, secondUserId);
-        return List.of(first, second);
+        bumpVersion(firstUserId);
+        return users;
     }
 
     @Override
+    @Transactional
     public List<User> removeFriendship(int firstUserId, int secondUserId) {
-        User first = getUserById(firstUserId);
-        User second = getUserById(secondUserId);
-        String sqlQuery = "DELETE FROM friendships WHERE (from_id, to_id) IN ((?, ?)) AND is_approved = true";
-        jdbcTemplate.update(sqlQuery, firstUserId, secondUserId);
-        return List.of(first, second);
+        List<User> users = getUsersById(firstUserId, secondUserId);
+        String sqlQuery = "DELETE FROM friendships WHERE from_id = ? AND to_id = ? AND is_approved = true";
+        if (jdbcTemplate.update(sqlQuery, firstUserId, secondUserId) > 0) bumpVersion(firstUserId);
+        return users;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(int firstUserId, int secondUserId) {
-        User first = getUserById(firstUserId);
-        User second = getUserById(secondUserId);
+        getUsersById(firstUserId, secondUserId);
         List<User> result = new ArrayList<>();
         try {
             String sqlQuery = "SELECT user_id, user_email, user_login, user_name, user_birthday " +
@@ -143,17 +245,77 @@ public class DbUserStorage implements UserStorage {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, int[]> getFriendsAdjacency() {
+        Map<Integer, int[]> result = new HashMap<>();
+        String sqlQuery = "SELECT from_id, to_id FROM friendships WHERE is_approved = true ORDER BY from_id, to_id";
+        streamingJdbcTemplate.query(sqlQuery, (ResultSetExtractor<Void>) resultSet -> {
+            int userId = 0;
+            int[] friendIds = new int[16];
+            int size = 0;
+            while (resultSet.next()) {
+                int fromId = resultSet.getInt("from_id");
+                if (size > 0 && fromId != userId) {
+                    result.put(userId, Arrays.copyOf(friendIds, size));
+                    size = 0;
+                }
+                userId = fromId;
+                if (size == friendIds.length) friendIds = Arrays.copyOf(friendIds, size * 2);
+                friendIds[size++] = resultSet.getInt("to_id");
+            }
+            if (size > 0) result.put(userId, Arrays.copyOf(friendIds, size));
+            return null;
+        });
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, int[]> getFriendsAdjacencyByIds(List<Integer> userIds) {
+        Map<Integer, List<Integer>> friendIdsByUser = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + CHUNK_SIZE, userIds.size()));
+            String sqlQuery = "SELECT from_id, to_id FROM friendships " +
+                               "WHERE is_approved = true " +
+                                 "AND from_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, (RowCallbackHandler) resultSet ->
+                    friendIdsByUser.computeIfAbsent(resultSet.getInt("from_id"), id -> new ArrayList<>())
+                            .add(resultSet.getInt("to_id")), chunk.toArray());
+        }
+        Map<Integer, int[]> result = new HashMap<>();
+        friendIdsByUser.forEach((userId, friendIds) -> result.put(userId, SortedIntArrays.of(friendIds)));
+        return result;
+    }
+
     private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
         User result = new User();
         result.setId(resultSet.getInt("user_id"));
         result.setEmail(resultSet.getString("user_email"));
         result.setLogin(resultSet.getString("user_login"));
         result.setName(resultSet.getString("user_name"));
-        result.setBirthday(resultSet.getDate("user_birthday").toLocalDate());
+        result.setBirthday(resultSet.getObject("user_birthday", LocalDate.class));
         return result;
     }
 
-    private User getUserById(int id) {
-        return getUser(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
+    private void bumpVersion(int userId) {
+        String sqlQuery = "UPDATE users SET user_version = user_version + 1 WHERE user_id = ?";
+        jdbcTemplate.update(sqlQuery, userId);
+        changeLog.append(ChangeLog.Entity.USER, userId);
+    }
+
+    /**
+     * Get two users with one query.
+     * @param firstUserId ID of the first user.
+     * @param secondUserId ID of the second user.
+     * @return List of the first and the second User objects.
+     */
+    private List<User> getUsersById(int firstUserId, int secondUserId) {
+        List<User> users = getUsersByIds(List.of(firstUserId, secondUserId));
+        User first = users.stream().filter(u -> u.getId() == firstUserId).findFirst()
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
+        User second = users.stream().filter(u -> u.getId() == secondUserId).findFirst()
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Unable to find user"));
+        return List.of(first, second);
     }
 }
@@ -6,7 +6,9 @@ import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     /**
@@ -16,6 +18,13 @@ public interface FilmStorage {
      */
     Film addFilm(Film film);
 
+    /**
+     * Add films to the storage at once, either all of them or none.
+     * @param films Film objects to add.
+     * @return Same Film objects with IDs set.
+     */
+    List<Film> addFilms(List<Film> films);
+
     /**
      * Remove film from storage by ID.
      * @param filmId ID of Film object to remove.
@@ -43,6 +52,20 @@ public interface FilmStorage {
      */
     Optional<Film> getFilm(int filmId);
 
+    /**
+     * Get version of film without loading it. Version changes on every change of film or its likes.
+     * @param filmId Film ID.
+     * @return Version of film or empty Optional if film is not found.
+     */
+    Optional<Long> getFilmVersion(int filmId);
+
+    /**
+     * Check if film exists in storage without loading it.
+     * @param filmId Film ID to search in storage.
+     * @return True if film is found.
+     */
+    boolean containsFilm(int filmId);
+
     /**
      * Get Film objects from storage.
      * @param limit Amount of Film objects to get.
@@ -51,6 +74,14 @@ public interface FilmStorage {
      */
     List<Film> getFilms(int limit, int offset);
 
+    /**
+     * Get Film objects from storage following given film ID, ordered by ID.
+     * @param afterId ID of the last Film object of previous page, 0 for the first page.
+     * @param limit Amount of Film objects to get.
+     * @return List of found Film objects.
+     */
+    List<Film> getFilmsAfter(int afterId, int limit);
+
     /**
      * Get all Films from storage.
      * @return List of all Film objects from storage.
@@ -58,10 +89,23 @@ public interface FilmStorage {
     List<Film> getAllFilms();
 
     /**
-     * Save like by user to Film
+     * Pass all Films from storage to action one by one, ordered by ID, without collecting them in memory.
+     * @param action Action to perform for each Film object.
+     */
+    void forEachFilm(Consumer<Film> action);
+
+    /**
+     * Get Film objects from storage by their IDs.
+     * @param filmIds IDs of Film objects to get.
+     * @return List of found Film objects in order of given IDs, unknown IDs are skipped.
+     */
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
+    /**
+     * Save like by user to Film. Saving existing like changes nothing.
      * @param user User, who likes.
      * @param film Film to set like.
-     * @return Film object.
+     * @return Film object with actual like count.
      */
     Film saveFilmLike(User user, Film film);
 
@@ -69,10 +113,19 @@ public interface FilmStorage {
      * Remove like from film.
      * @param user User, who likes Film.
      * @param film Film, which liked by User.
-     * @return Film object.
+     * @return Film object with actual like count.
      */
     Film removeFilmLike(User user, Film film);
 
+    /**
+     * Save likes and remove likes of many films at once. Likes which are already saved, likes which are
+     * already removed and likes of unknown users or films are skipped.
+     * @param added Pairs of user ID and film ID to save likes.
+     * @param removed Pairs of user ID and film ID to remove likes.
+     * @return Map of film ID to change of its like count, films without changes are missing.
+     */
+    Map<Integer, Integer> saveFilmLikes(List<int[]> added, List<int[]> removed);
+
     /**
      * Get most liked films from storage.
      * @param amount Max amount of Films to get from storage.
@@ -80,6 +133,19 @@ public interface FilmStorage {
      */
     List<Film> getTopFilms(int amount);
 
+    /**
+     * Get likes as sorted arrays of IDs of users who liked each film.
+     * @return Map of film ID to sorted array of user IDs, films without likes could be missing.
+     */
+    Map<Integer, int[]> getFilmLikes();
+
+    /**
+     * Get likes of given films as sorted arrays of IDs of users who liked each film.
+     * @param filmIds Film IDs.
+     * @return Map of film ID to sorted array of user IDs, films without likes or not found are missing.
+     */
+    Map<Integer, int[]> getFilmLikesByIds(List<Integer> filmIds);
+
     List<Genre> getAllGenres();
 
     Optional<Genre> getGenre(int genreId);
@@ -87,4 +153,10 @@ public interface FilmStorage {
     List<Rating> getAllRatings();
 
     Optional<Rating> getRating(int ratingId);
+
+    /**
+     * Get version of genres and MPA ratings. Version changes whenever they could have changed.
+     * @return Version of genres and ratings.
+     */
+    long getReferenceDataVersion();
 }
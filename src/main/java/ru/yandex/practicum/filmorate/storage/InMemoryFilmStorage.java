@@ -8,87 +8,172 @@ import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Comparator.comparing;
 
+/**
+ * Thread-safe film storage. Films are found by ID in a hash map, while a sorted set of IDs keeps
+ * iteration in ID order. Stored films are never changed in place: likes replace the whole Film object
+ * inside an atomic map update, so readers always see a consistent film.
+ */
 @Component
 @Qualifier("inMemoryFilmStorage")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final List<Film> storage = new ArrayList<>();
-    private int idCounter = 0;
+    private final ConcurrentMap<Integer, Film> films = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Integer> filmIds = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<Integer, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicInteger idCounter = new AtomicInteger();
+
     @Override
     public Film addFilm(Film film) {
-        film.setId(++idCounter);
-        storage.add(film);
-        int filmIndex = storage.indexOf(film);
-        return storage.get(filmIndex);
+        film.setId(idCounter.incrementAndGet());
+        film.setLikeCount(film.countUsersLiked());
+        films.put(film.getId(), film);
+        filmIds.add(film.getId());
+        return film;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        films.forEach(this::addFilm);
+        return films;
     }
 
     @Override
     public Optional<Film> removeFilm(int filmId) {
-        int result = findFilmIndexById(filmId);
-        if (result != -1) return Optional.of(storage.remove(result));
-        return Optional.empty();
+        Film removed = films.remove(filmId);
+        if (removed != null) filmIds.remove(filmId);
+        versions.remove(filmId);
+        return Optional.ofNullable(removed);
     }
 
     @Override
     public void removeAll() {
-        storage.clear();
+        films.clear();
+        filmIds.clear();
+        versions.clear();
     }
 
     @Override
     public Optional<Film> updateFilm(int filmId, Film film) {
-        int result = findFilmIndexById(filmId);
-        if (result != -1) {
-            storage.set(result, film);
-            return Optional.of(storage.get(result));
-        }
-        return Optional.empty();
+        film.setId(filmId);
+        film.setLikeCount(film.countUsersLiked());
+        if (films.replace(filmId, film) == null) return Optional.empty();
+        bumpVersion(filmId);
+        return Optional.of(film);
     }
 
     @Override
     public Optional<Film> getFilm(int filmId) {
-        int result = findFilmIndexById(filmId);
-        if (result != -1) return Optional.of(storage.get(result));
-        return Optional.empty();
+        return Optional.ofNullable(films.get(filmId));
+    }
+
+    @Override
+    public Optional<Long> getFilmVersion(int filmId) {
+        if (!films.containsKey(filmId)) return Optional.empty();
+        return Optional.of(versions.getOrDefault(filmId, 0L));
+    }
+
+    @Override
+    public boolean containsFilm(int filmId) {
+        return films.containsKey(filmId);
     }
 
     @Override
     public List<Film> getFilms(int limit, int offset) {
-        return storage.stream().skip(offset).limit(limit).collect(Collectors.toList());
+        return streamFilms(filmIds).skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        return streamFilms(filmIds.tailSet(afterId, false)).limit(limit).collect(Collectors.toList());
     }
 
     @Override
     public List<Film> getAllFilms() {
-        return storage;
+        return streamFilms(filmIds).collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        streamFilms(filmIds).forEach(action);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        return filmIds.stream()
+                .distinct()
+                .map(this::getFilm)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film saveFilmLike(User user, Film film) {
-        film.getUsersLikedIds().add(user.getId());
+        Film updated = films.computeIfPresent(film.getId(), (id, stored) -> withLikes(stored, likes -> likes.add(user.getId())));
         user.getFilmsLiked().add(film.getId());
-        return film;
+        return updated != null ? updated : film;
     }
 
     @Override
     public Film removeFilmLike(User user, Film film) {
-        film.getUsersLikedIds().remove(user.getId());
+        Film updated = films.computeIfPresent(film.getId(), (id, stored) -> withLikes(stored, likes -> likes.remove(user.getId())));
         user.getFilmsLiked().remove(film.getId());
-        return film;
+        return updated != null ? updated : film;
+    }
+
+    @Override
+    public Map<Integer, Integer> saveFilmLikes(List<int[]> added, List<int[]> removed) {
+        Map<Integer, Integer> changes = new HashMap<>();
+        added.forEach(like -> saveLikeChange(changes, like[0], like[1], true));
+        removed.forEach(like -> saveLikeChange(changes, like[0], like[1], false));
+        changes.values().removeIf(delta -> delta == 0);
+        return changes;
     }
 
     @Override
     public List<Film> getTopFilms(int amount) {
-        return getAllFilms().stream()
-                .distinct()
-                .sorted(comparing(Film::countUsersLiked).reversed().thenComparing(Film::getName))
+        return films.values().stream()
+                .sorted(comparing(Film::countUsersLiked).reversed()
+                        .thenComparing(Film::getName, Comparator.nullsFirst(Comparator.naturalOrder())))
                 .limit(amount)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Integer, int[]> getFilmLikes() {
+        Map<Integer, int[]> result = new HashMap<>();
+        films.values().forEach(f -> {
+            if (!f.getUsersLikedIds().isEmpty()) result.put(f.getId(), SortedIntArrays.of(f.getUsersLikedIds()));
+        });
+        return result;
+    }
+
+    @Override
+    public Map<Integer, int[]> getFilmLikesByIds(List<Integer> filmIds) {
+        Map<Integer, int[]> result = new HashMap<>();
+        filmIds.forEach(filmId -> {
+            Film film = films.get(filmId);
+            if (film != null && !film.getUsersLikedIds().isEmpty()) result.put(filmId, SortedIntArrays.of(film.getUsersLikedIds()));
+        });
+        return result;
+    }
+
     @Override
     public List<Genre> getAllGenres() {
         return null;
@@ -109,8 +194,50 @@ public class InMemoryFilmStorage implements FilmStorage {
         return Optional.empty();
     }
 
-    private int findFilmIndexById(int id) {
-        Optional<Film> result = storage.stream().filter(i -> i.getId() == id).findAny();
-        return result.isEmpty() ? -1 : storage.indexOf(result.get());
+    @Override
+    public long getReferenceDataVersion() {
+        return 0;
+    }
+
+    private void bumpVersion(int filmId) {
+        if (films.containsKey(filmId)) versions.merge(filmId, 1L, Long::sum);
+    }
+
+    private void saveLikeChange(Map<Integer, Integer> changes, int userId, int filmId, boolean liked) {
+        films.computeIfPresent(filmId, (id, stored) -> {
+            if (stored.getUsersLikedIds().contains(userId) == liked) return stored;
+            changes.merge(filmId, liked ? 1 : -1, Integer::sum);
+            return withLikes(stored, likes -> {
+                if (liked) likes.add(userId);
+                else likes.remove(userId);
+            });
+        });
+    }
+
+    private Stream<Film> streamFilms(Set<Integer> ids) {
+        return ids.stream().map(films::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Copy stored film with changed set of likes and next version.
+     * @param stored Film object from storage, left unchanged.
+     * @param change Change to apply to copy of likes.
+     * @return New Film object to put to storage.
+     */
+    private Film withLikes(Film stored, Consumer<Set<Integer>> change) {
+        Set<Integer> usersLikedIds = new HashSet<>(stored.getUsersLikedIds());
+        change.accept(usersLikedIds);
+        Film result = new Film();
+        result.setId(stored.getId());
+        result.setName(stored.getName());
+        result.setDescription(stored.getDescription());
+        result.setReleaseDate(stored.getReleaseDate());
+        result.setDuration(stored.getDuration());
+        result.setGenres(stored.getGenres());
+        result.setMpa(stored.getMpa());
+        result.setUsersLikedIds(usersLikedIds);
+        result.setLikeCount(usersLikedIds.size());
+        result.setVersion(versions.merge(stored.getId(), 1L, Long::sum));
+        return result;
     }
 }
@@ -6,111 +6,234 @@ import org.springframework.web.server.ResponseStatusException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
+/**
+ * Thread-safe user storage. Friendship graph is owned by the storage and kept as a sorted int array
+ * of friend IDs per user, so an edge takes 4 bytes and common friends are found with a linear merge.
+ * Returned User objects are copies with friends filled from the graph.
+ */
 @Component
 @Qualifier("inMemoryUserStorage")
 public class InMemoryUserStorage implements UserStorage {
-    private final List<User> storage = new ArrayList<>();
-    private int idCounter = 0;
+    private final ConcurrentMap<Integer, User> users = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Integer> userIds = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicInteger idCounter = new AtomicInteger();
+
     @Override
     public User addUser(User user) {
-        user.setId(++idCounter);
+        user.setId(idCounter.incrementAndGet());
         if (user.getName().isBlank()) user.setName(user.getLogin());
-        storage.add(user);
-        int userIndex = storage.indexOf(user);
-        return storage.get(userIndex);
+        friends.put(user.getId(), SortedIntArrays.of(user.getFriends()));
+        User stored = copyOf(user, Collections.emptySet());
+        stored.setFilmsLiked(concurrentSetOf(user.getFilmsLiked()));
+        users.put(user.getId(), stored);
+        userIds.add(user.getId());
+        return user;
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        users.forEach(this::addUser);
+        return users;
     }
 
     @Override
     public User removeUser(int userId) {
-        int result = findUserIndexById(userId);
-        if (result != -1) return storage.remove(result);
-        return null;
+        User removed = users.remove(userId);
+        if (removed == null) return null;
+        userIds.remove(userId);
+        versions.remove(userId);
+        int[] friendIds = friends.remove(userId);
+        if (friendIds != null) {
+            for (int friendId : friendIds) {
+                friends.computeIfPresent(friendId, (id, ids) -> SortedIntArrays.remove(ids, userId));
+                bumpVersion(friendId);
+            }
+        }
+        return copyOf(removed, SortedIntArrays.toSet(friendIds != null ? friendIds : SortedIntArrays.EMPTY));
     }
 
     @Override
     public void removeAll() {
-        storage.clear();
+        users.clear();
+        userIds.clear();
+        friends.clear();
+        versions.clear();
     }
 
     @Override
     public Optional<User> updateUser(int userId, User user) {
-        int result = findUserIndexById(userId);
-        if (result != -1) {
-            storage.set(result, user);
-            return Optional.of(storage.get(result));
-        }
-        return Optional.empty();
+        User updated = users.computeIfPresent(userId, (id, stored) -> {
+            User result = copyOf(user, Collections.emptySet());
+            result.setId(userId);
+            result.setFilmsLiked(stored.getFilmsLiked());
+            result.setFriendshipStatus(stored.getFriendshipStatus());
+            return result;
+        });
+        if (updated != null) bumpVersion(userId);
+        return Optional.ofNullable(updated).map(this::view);
     }
 
     @Override
     public Optional<User> getUser(int userId) {
-        int result = findUserIndexById(userId);
-        if (result != -1) return Optional.of(storage.get(result));
-        return Optional.empty();
+        return Optional.ofNullable(users.get(userId)).map(this::view);
+    }
+
+    @Override
+    public Optional<Long> getUserVersion(int userId) {
+        if (!users.containsKey(userId)) return Optional.empty();
+        return Optional.of(versions.getOrDefault(userId, 0L));
+    }
+
+    @Override
+    public Optional<Long> getFriendsVersion(int userId) {
+        if (!users.containsKey(userId)) return Optional.empty();
+        long friendsVersion = 0;
+        for (int friendId : getFriendIds(userId)) friendsVersion += versions.getOrDefault(friendId, 0L);
+        return Optional.of(versions.getOrDefault(userId, 0L) << 32 | (friendsVersion & 0xFFFFFFFFL));
     }
 
     @Override
     public Optional<List<User>> getUserFriends(int userId) {
-        int result = findUserIndexById(userId);
-        List<User> friendsList = new ArrayList<>();
-        if (result != -1) {
-            Set<Integer> friendsIds = storage.get(result).getFriends();
-            friendsIds.forEach(i -> friendsList.add(getUser(i).get()));
-            return Optional.of(friendsList);
-        }
-        return Optional.empty();
+        if (!users.containsKey(userId)) return Optional.empty();
+        return Optional.of(getUsers(getFriendIds(userId)));
     }
 
     @Override
     public List<User> getUsers(int limit, int offset) {
-        return storage.stream().skip(offset).limit(limit).collect(Collectors.toList());
+        return streamUsers(userIds).skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getUsersAfter(int afterId, int limit) {
+        return streamUsers(userIds.tailSet(afterId, false)).limit(limit).collect(Collectors.toList());
     }
 
     @Override
     public List<User> getAllUsers() {
-        return storage;
+        return streamUsers(userIds).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        return getUsers(userIds.stream().mapToInt(Integer::intValue).distinct().toArray());
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        streamUsers(userIds).forEach(action);
     }
 
     @Override
     public List<User> saveFriendship(int firstUserId, int secondUserId) {
-        User first = getUserById(firstUserId);
-        User second = getUserById(secondUserId);
-        first.getFriends().add(secondUserId);
-        second.getFriends().add(firstUserId);
-        return List.of(first, second);
+        getUserById(firstUserId);
+        getUserById(secondUserId);
+        friends.compute(firstUserId, (id, ids) -> SortedIntArrays.insert(ids, secondUserId));
+        friends.compute(secondUserId, (id, ids) -> SortedIntArrays.insert(ids, firstUserId));
+        bumpVersion(firstUserId);
+        bumpVersion(secondUserId);
+        return List.of(getUserById(firstUserId), getUserById(secondUserId));
     }
 
     @Override
     public List<User> removeFriendship(int firstUserId, int secondUserId) {
-        User first = getUserById(firstUserId);
-        User second = getUserById(secondUserId);
-        first.getFriends().remove(secondUserId);
-        second.getFriends().remove(firstUserId);
-        return List.of(first, second);
+        getUserById(firstUserId);
+        getUserById(secondUserId);
+        friends.computeIfPresent(firstUserId, (id, ids) -> SortedIntArrays.remove(ids, secondUserId));
+        friends.computeIfPresent(secondUserId, (id, ids) -> SortedIntArrays.remove(ids, firstUserId));
+        bumpVersion(firstUserId);
+        bumpVersion(secondUserId);
+        return List.of(getUserById(firstUserId), getUserById(secondUserId));
     }
 
     @Override
     public List<User> getCommonFriends(int firstUserId, int secondUserId) {
-        User first = getUserById(firstUserId);
-        User second = getUserById(secondUserId);
-        List<User> result = new ArrayList<>();
-        first.getFriends().stream()
-                .filter(second.getFriends()::contains)
-                .collect(Collectors.toSet())
-                .forEach(i -> result.add(getUserById(i)));
+        getUserById(firstUserId);
+        getUserById(secondUserId);
+        return getUsers(SortedIntArrays.intersect(getFriendIds(firstUserId), getFriendIds(secondUserId)));
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendsAdjacency() {
+        return new HashMap<>(friends);
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendsAdjacencyByIds(List<Integer> userIds) {
+        Map<Integer, int[]> result = new HashMap<>();
+        userIds.forEach(userId -> {
+            int[] friendIds = getFriendIds(userId);
+            if (friendIds.length > 0) result.put(userId, friendIds);
+        });
+        return result;
+    }
+
+    private void bumpVersion(int userId) {
+        if (users.containsKey(userId)) versions.merge(userId, 1L, Long::sum);
+    }
+
+    private int[] getFriendIds(int userId) {
+        return friends.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    private List<User> getUsers(int[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User user = users.get(id);
+            if (user != null) result.add(view(user));
+        }
         return result;
     }
 
-    private int findUserIndexById(int id) {
-        Optional<User> result = storage.stream().filter(i -> i.getId() == id).findAny();
-        return result.isEmpty() ? -1 : storage.indexOf(result.get());
+    private Stream<User> streamUsers(Set<Integer> ids) {
+        return ids.stream().map(users::get).filter(Objects::nonNull).map(this::view);
+    }
+
+    /**
+     * Build User object to return from storage. Liked films are shared with stored user,
+     * friends are filled from the friendship graph.
+     * @param stored User object from storage.
+     * @return Copy of User object.
+     */
+    private User view(User stored) {
+        return copyOf(stored, SortedIntArrays.toSet(getFriendIds(stored.getId())));
+    }
+
+    private User copyOf(User user, Set<Integer> friendIds) {
+        User result = new User();
+        result.setId(user.getId());
+        result.setEmail(user.getEmail());
+        result.setLogin(user.getLogin());
+        result.setName(user.getName());
+        result.setBirthday(user.getBirthday());
+        result.setFriends(friendIds);
+        result.setFilmsLiked(user.getFilmsLiked());
+        result.setFriendshipStatus(user.getFriendshipStatus());
+        return result;
+    }
+
+    private Set<Integer> concurrentSetOf(Set<Integer> values) {
+        Set<Integer> result = ConcurrentHashMap.newKeySet();
+        if (values != null) result.addAll(values);
+        return result;
     }
 
     private User getUserById(int id) {
@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Film storage recording latency, SQL statements and rows of every call in {@link StorageMetrics}.
+ * Latency of forEachFilm includes time of the passed action.
+ */
+public class InstrumentedFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final StorageMetrics.Probe addFilm;
+    private final StorageMetrics.Probe addFilms;
+    private final StorageMetrics.Probe removeFilm;
+    private final StorageMetrics.Probe removeAll;
+    private final StorageMetrics.Probe updateFilm;
+    private final StorageMetrics.Probe getFilm;
+    private final StorageMetrics.Probe getFilmVersion;
+    private final StorageMetrics.Probe containsFilm;
+    private final StorageMetrics.Probe getFilms;
+    private final StorageMetrics.Probe getFilmsAfter;
+    private final StorageMetrics.Probe getAllFilms;
+    private final StorageMetrics.Probe forEachFilm;
+    private final StorageMetrics.Probe getFilmsByIds;
+    private final StorageMetrics.Probe saveFilmLike;
+    private final StorageMetrics.Probe removeFilmLike;
+    private final StorageMetrics.Probe saveFilmLikes;
+    private final StorageMetrics.Probe getTopFilms;
+    private final StorageMetrics.Probe getFilmLikes;
+    private final StorageMetrics.Probe getFilmLikesByIds;
+    private final StorageMetrics.Probe getAllGenres;
+    private final StorageMetrics.Probe getGenre;
+    private final StorageMetrics.Probe getAllRatings;
+    private final StorageMetrics.Probe getRating;
+    private final StorageMetrics.Probe getReferenceDataVersion;
+
+    public InstrumentedFilmStorage(FilmStorage delegate, StorageMetrics metrics) {
+        this.delegate = delegate;
+        this.addFilm = metrics.probe("film", "addFilm");
+        this.addFilms = metrics.probe("film", "addFilms");
+        this.removeFilm = metrics.probe("film", "removeFilm");
+        this.removeAll = metrics.probe("film", "removeAll");
+        this.updateFilm = metrics.probe("film", "updateFilm");
+        this.getFilm = metrics.probe("film", "getFilm");
+        this.getFilmVersion = metrics.probe("film", "getFilmVersion");
+        this.containsFilm = metrics.probe("film", "containsFilm");
+        this.getFilms = metrics.probe("film", "getFilms");
+        this.getFilmsAfter = metrics.probe("film", "getFilmsAfter");
+        this.getAllFilms = metrics.probe("film", "getAllFilms");
+        this.forEachFilm = metrics.probe("film", "forEachFilm");
+        this.getFilmsByIds = metrics.probe("film", "getFilmsByIds");
+        this.saveFilmLike = metrics.probe("film", "saveFilmLike");
+        this.removeFilmLike = metrics.probe("film", "removeFilmLike");
+        this.saveFilmLikes = metrics.probe("film", "saveFilmLikes");
+        this.getTopFilms = metrics.probe("film", "getTopFilms");
+        this.getFilmLikes = metrics.probe("film", "getFilmLikes");
+        this.getFilmLikesByIds = metrics.probe("film", "getFilmLikesByIds");
+        this.getAllGenres = metrics.probe("film", "getAllGenres");
+        this.getGenre = metrics.probe("film", "getGenre");
+        this.getAllRatings = metrics.probe("film", "getAllRatings");
+        this.getRating = metrics.probe("film", "getRating");
+        this.getReferenceDataVersion = metrics.probe("film", "getReferenceDataVersion");
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        long start = addFilm.start();
+        try {
+            return delegate.addFilm(film);
+        } finally {
+            addFilm.stop(start);
+        }
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        long start = addFilms.start();
+        try {
+            return delegate.addFilms(films);
+        } finally {
+            addFilms.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Film> removeFilm(int filmId) {
+        long start = removeFilm.start();
+        try {
+            return delegate.removeFilm(filmId);
+        } finally {
+            removeFilm.stop(start);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        long start = removeAll.start();
+        try {
+            delegate.removeAll();
+        } finally {
+            removeAll.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Film> updateFilm(int filmId, Film film) {
+        long start = updateFilm.start();
+        try {
+            return delegate.updateFilm(filmId, film);
+        } finally {
+            updateFilm.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Film> getFilm(int filmId) {
+        long start = getFilm.start();
+        try {
+            return delegate.getFilm(filmId);
+        } finally {
+            getFilm.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Long> getFilmVersion(int filmId) {
+        long start = getFilmVersion.start();
+        try {
+            return delegate.getFilmVersion(filmId);
+        } finally {
+            getFilmVersion.stop(start);
+        }
+    }
+
+    @Override
+    public boolean containsFilm(int filmId) {
+        long start = containsFilm.start();
+        try {
+            return delegate.containsFilm(filmId);
+        } finally {
+            containsFilm.stop(start);
+        }
+    }
+
+    @Override
+    public List<Film> getFilms(int limit, int offset) {
+        long start = getFilms.start();
+        try {
+            return delegate.getFilms(limit, offset);
+        } finally {
+            getFilms.stop(start);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(int afterId, int limit) {
+        long start = getFilmsAfter.start();
+        try {
+            return delegate.getFilmsAfter(afterId, limit);
+        } finally {
+            getFilmsAfter.stop(start);
+        }
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        long start = getAllFilms.start();
+        try {
+            return delegate.getAllFilms();
+        } finally {
+            getAllFilms.stop(start);
+        }
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        long start = forEachFilm.start();
+        try {
+            delegate.forEachFilm(action);
+        } finally {
+            forEachFilm.stop(start);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        long start = getFilmsByIds.start();
+        try {
+            return delegate.getFilmsByIds(filmIds);
+        } finally {
+            getFilmsByIds.stop(start);
+        }
+    }
+
+    @Override
+    public Film saveFilmLike(User user, Film film) {
+        long start = saveFilmLike.start();
+        try {
+            return delegate.saveFilmLike(user, film);
+        } finally {
+            saveFilmLike.stop(start);
+        }
+    }
+
+    @Override
+    public Film removeFilmLike(User user, Film film) {
+        long start = removeFilmLike.start();
+        try {
+            return delegate.removeFilmLike(user, film);
+        } finally {
+            removeFilmLike.stop(start);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> saveFilmLikes(List<int[]> added, List<int[]> removed) {
+        long start = saveFilmLikes.start();
+        try {
+            return delegate.saveFilmLikes(added, removed);
+        } finally {
+            saveFilmLikes.stop(start);
+        }
+    }
+
+    @Override
+    public List<Film> getTopFilms(int amount) {
+        long start = getTopFilms.start();
+        try {
+            return delegate.getTopFilms(amount);
+        } finally {
+            getTopFilms.stop(start);
+        }
+    }
+
+    @Override
+    public Map<Integer, int[]> getFilmLikes() {
+        long start = getFilmLikes.start();
+        try {
+            return delegate.getFilmLikes();
+        } finally {
+            getFilmLikes.stop(start);
+        }
+    }
+
+    @Override
+    public Map<Integer, int[]> getFilmLikesByIds(List<Integer> filmIds) {
+        long start = getFilmLikesByIds.start();
+        try {
+            return delegate.getFilmLikesByIds(filmIds);
+        } finally {
+            getFilmLikesByIds.stop(start);
+        }
+    }
+
+    @Override
+    public List<Genre> getAllGenres() {
+        long start = getAllGenres.start();
+        try {
+            return delegate.getAllGenres();
+        } finally {
+            getAllGenres.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Genre> getGenre(int genreId) {
+        long start = getGenre.start();
+        try {
+            return delegate.getGenre(genreId);
+        } finally {
+            getGenre.stop(start);
+        }
+    }
+
+    @Override
+    public List<Rating> getAllRatings() {
+        long start = getAllRatings.start();
+        try {
+            return delegate.getAllRatings();
+        } finally {
+            getAllRatings.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Rating> getRating(int ratingId) {
+        long start = getRating.start();
+        try {
+            return delegate.getRating(ratingId);
+        } finally {
+            getRating.stop(start);
+        }
+    }
+
+    @Override
+    public long getReferenceDataVersion() {
+        long start = getReferenceDataVersion.start();
+        try {
+            return delegate.getReferenceDataVersion();
+        } finally {
+            getReferenceDataVersion.stop(start);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * User storage recording latency, SQL statements and rows of every call in {@link StorageMetrics}.
+ * Latency of forEachUser includes time of the passed action.
+ */
+public class InstrumentedUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final StorageMetrics.Probe addUser;
+    private final StorageMetrics.Probe addUsers;
+    private final StorageMetrics.Probe removeUser;
+    private final StorageMetrics.Probe removeAll;
+    private final StorageMetrics.Probe updateUser;
+    private final StorageMetrics.Probe getUser;
+    private final StorageMetrics.Probe getUserVersion;
+    private final StorageMetrics.Probe getFriendsVersion;
+    private final StorageMetrics.Probe getUserFriends;
+    private final StorageMetrics.Probe getUsers;
+    private final StorageMetrics.Probe getUsersAfter;
+    private final StorageMetrics.Probe getAllUsers;
+    private final StorageMetrics.Probe getUsersByIds;
+    private final StorageMetrics.Probe forEachUser;
+    private final StorageMetrics.Probe saveFriendship;
+    private final StorageMetrics.Probe removeFriendship;
+    private final StorageMetrics.Probe getCommonFriends;
+    private final StorageMetrics.Probe getFriendsAdjacency;
+    private final StorageMetrics.Probe getFriendsAdjacencyByIds;
+
+    public InstrumentedUserStorage(UserStorage delegate, StorageMetrics metrics) {
+        this.delegate = delegate;
+        this.addUser = metrics.probe("user", "addUser");
+        this.addUsers = metrics.probe("user", "addUsers");
+        this.removeUser = metrics.probe("user", "removeUser");
+        this.removeAll = metrics.probe("user", "removeAll");
+        this.updateUser = metrics.probe("user", "updateUser");
+        this.getUser = metrics.probe("user", "getUser");
+        this.getUserVersion = metrics.probe("user", "getUserVersion");
+        this.getFriendsVersion = metrics.probe("user", "getFriendsVersion");
+        this.getUserFriends = metrics.probe("user", "getUserFriends");
+        this.getUsers = metrics.probe("user", "getUsers");
+        this.getUsersAfter = metrics.probe("user", "getUsersAfter");
+        this.getAllUsers = metrics.probe("user", "getAllUsers");
+        this.getUsersByIds = metrics.probe("user", "getUsersByIds");
+        this.forEachUser = metrics.probe("user", "forEachUser");
+        this.saveFriendship = metrics.probe("user", "saveFriendship");
+        this.removeFriendship = metrics.probe("user", "removeFriendship");
+        this.getCommonFriends = metrics.probe("user", "getCommonFriends");
+        this.getFriendsAdjacency = metrics.probe("user", "getFriendsAdjacency");
+        this.getFriendsAdjacencyByIds = metrics.probe("user", "getFriendsAdjacencyByIds");
+    }
+
+    @Override
+    public User addUser(User user) {
+        long start = addUser.start();
+        try {
+            return delegate.addUser(user);
+        } finally {
+            addUser.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> addUsers(List<User> users) {
+        long start = addUsers.start();
+        try {
+            return delegate.addUsers(users);
+        } finally {
+            addUsers.stop(start);
+        }
+    }
+
+    @Override
+    public User removeUser(int userId) {
+        long start = removeUser.start();
+        try {
+            return delegate.removeUser(userId);
+        } finally {
+            removeUser.stop(start);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        long start = removeAll.start();
+        try {
+            delegate.removeAll();
+        } finally {
+            removeAll.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<User> updateUser(int userId, User user) {
+        long start = updateUser.start();
+        try {
+            return delegate.updateUser(userId, user);
+        } finally {
+            updateUser.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<User> getUser(int userId) {
+        long start = getUser.start();
+        try {
+            return delegate.getUser(userId);
+        } finally {
+            getUser.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Long> getUserVersion(int userId) {
+        long start = getUserVersion.start();
+        try {
+            return delegate.getUserVersion(userId);
+        } finally {
+            getUserVersion.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<Long> getFriendsVersion(int userId) {
+        long start = getFriendsVersion.start();
+        try {
+            return delegate.getFriendsVersion(userId);
+        } finally {
+            getFriendsVersion.stop(start);
+        }
+    }
+
+    @Override
+    public Optional<List<User>> getUserFriends(int userId) {
+        long start = getUserFriends.start();
+        try {
+            return delegate.getUserFriends(userId);
+        } finally {
+            getUserFriends.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> getUsers(int limit, int offset) {
+        long start = getUsers.start();
+        try {
+            return delegate.getUsers(limit, offset);
+        } finally {
+            getUsers.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> getUsersAfter(int afterId, int limit) {
+        long start = getUsersAfter.start();
+        try {
+            return delegate.getUsersAfter(afterId, limit);
+        } finally {
+            getUsersAfter.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        long start = getAllUsers.start();
+        try {
+            return delegate.getAllUsers();
+        } finally {
+            getAllUsers.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        long start = getUsersByIds.start();
+        try {
+            return delegate.getUsersByIds(userIds);
+        } finally {
+            getUsersByIds.stop(start);
+        }
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        long start = forEachUser.start();
+        try {
+            delegate.forEachUser(action);
+        } finally {
+            forEachUser.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> saveFriendship(int firstUserId, int secondUserId) {
+        long start = saveFriendship.start();
+        try {
+            return delegate.saveFriendship(firstUserId, secondUserId);
+        } finally {
+            saveFriendship.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> removeFriendship(int firstUserId, int secondUserId) {
+        long start = removeFriendship.start();
+        try {
+            return delegate.removeFriendship(firstUserId, secondUserId);
+        } finally {
+            removeFriendship.stop(start);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(int firstUserId, int secondUserId) {
+        long start = getCommonFriends.start();
+        try {
+            return delegate.getCommonFriends(firstUserId, secondUserId);
+        } finally {
+            getCommonFriends.stop(start);
+        }
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendsAdjacency() {
+        long start = getFriendsAdjacency.start();
+        try {
+            return delegate.getFriendsAdjacency();
+        } finally {
+            getFriendsAdjacency.stop(start);
+        }
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendsAdjacencyByIds(List<Integer> userIds) {
+        long start = getFriendsAdjacencyByIds.start();
+        try {
+            return delegate.getFriendsAdjacencyByIds(userIds);
+        } finally {
+            getFriendsAdjacencyByIds.stop(start);
+        }
+    }
+}
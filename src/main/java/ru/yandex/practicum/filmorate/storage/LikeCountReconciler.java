@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps films.like_count in line with films_liked. The counter is maintained by the like write paths,
+ * this job fills it for databases created before the column existed and repairs any drift found later.
+ */
+@Slf4j
+@Component
+public class LikeCountReconciler {
+    /**
+     * Order of {@link #backfill()} among {@link ApplicationReadyEvent} listeners, listeners which read
+     * like counters should come after it.
+     */
+    public static final int BACKFILL_ORDER = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LikeCountReconciler(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Fill like counters from films_liked once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(BACKFILL_ORDER)
+    public void backfill() {
+        int updated = repair();
+        if (updated > 0) log.info("Like counters backfilled for {} films", updated);
+    }
+
+    /**
+     * Compare like counters with films_liked and repair films with wrong counters.
+     * @return Amount of films which counters were repaired.
+     */
+    @Scheduled(initialDelayString = "${filmorate.likes.consistency-check-interval:3600000}",
+            fixedDelayString = "${filmorate.likes.consistency-check-interval:3600000}")
+    public int checkConsistency() {
+        String sqlQuery = "SELECT COUNT(*) FROM films AS f " +
+                "WHERE f.like_count <> (SELECT COUNT(*) FROM films_liked AS fl WHERE fl.film_id = f.film_id)";
+        Integer drifted = jdbcTemplate.queryForObject(sqlQuery, Integer.class);
+        if (drifted == null || drifted == 0) return 0;
+        log.warn("Like counters of {} films differ from films_liked, repairing", drifted);
+        return repair();
+    }
+
+    private int repair() {
+        String sqlQuery = "UPDATE films AS f " +
+                "SET like_count = (SELECT COUNT(*) FROM films_liked AS fl WHERE fl.film_id = f.film_id), " +
+                    "film_version = film_version + 1 " +
+                "WHERE like_count <> (SELECT COUNT(*) FROM films_liked AS fl WHERE fl.film_id = f.film_id)";
+        return jdbcTemplate.update(sqlQuery);
+    }
+}
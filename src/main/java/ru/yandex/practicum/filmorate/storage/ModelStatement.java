@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Insert or update statement of a model object, built once: SQL text, generated key column and binder
+ * which sets parameters straight from the object, so a write needs neither metadata lookups nor
+ * intermediate maps of column values.
+ * @param <T> Type of model object.
+ */
+public final class ModelStatement<T> {
+    /**
+     * Sets statement parameters from model object, starting with the first one.
+     * @param <T> Type of model object.
+     */
+    @FunctionalInterface
+    public interface Binder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    private final String sql;
+    private final String[] keyColumns;
+    private final Binder<T> binder;
+    private volatile int parameterCount;
+
+    private ModelStatement(String sql, String[] keyColumns, Binder<T> binder) {
+        this.sql = sql;
+        this.keyColumns = keyColumns;
+        this.binder = binder;
+    }
+
+    /**
+     * Create insert statement.
+     * @param sql INSERT statement.
+     * @param keyColumn Name of generated key column.
+     * @param binder Binder of all statement parameters.
+     * @return Insert statement.
+     */
+    public static <T> ModelStatement<T> insert(String sql, String keyColumn, Binder<T> binder) {
+        return new ModelStatement<>(sql, new String[] {keyColumn}, binder);
+    }
+
+    /**
+     * Create update statement.
+     * @param sql UPDATE statement, its last parameter is the key of updated row.
+     * @param binder Binder of all statement parameters except the last one.
+     * @return Update statement.
+     */
+    public static <T> ModelStatement<T> update(String sql, Binder<T> binder) {
+        return new ModelStatement<>(sql, null, binder);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Insert model object.
+     * @param jdbcTemplate Template to run statement with.
+     * @param item Model object to insert.
+     * @return Generated key of inserted row.
+     */
+    public int insert(JdbcTemplate jdbcTemplate, T item) {
+        Integer key = jdbcTemplate.execute(connection -> connection.prepareStatement(sql, keyColumns),
+                (PreparedStatementCallback<Integer>) stmt -> {
+                    binder.bind(stmt, item);
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (!keys.next()) throw new SQLException("Key was not generated");
+                        return keys.getInt(1);
+                    }
+                });
+        return key != null ? key : 0;
+    }
+
+    /**
+     * Insert model objects with one JDBC batch.
+     * @param jdbcTemplate Template to run statement with.
+     * @param items Model objects to insert.
+     * @param keySetter Consumer of each object with generated key of its row.
+     */
+    public void insertAll(JdbcTemplate jdbcTemplate, List<T> items, ObjIntConsumer<T> keySetter) {
+        if (items.isEmpty()) return;
+        jdbcTemplate.execute(connection -> connection.prepareStatement(sql, keyColumns),
+                (PreparedStatementCallback<Void>) stmt -> {
+                    for (T item : items) {
+                        binder.bind(stmt, item);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        for (T item : items) {
+                            if (!keys.next()) throw new SQLException("Not all keys were generated");
+                            keySetter.accept(item, keys.getInt(1));
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Update row with model object.
+     * @param jdbcTemplate Template to run statement with.
+     * @param key Key of row to update.
+     * @param item Model object with new values.
+     * @return Amount of updated rows.
+     */
+    public int update(JdbcTemplate jdbcTemplate, int key, T item) {
+        return jdbcTemplate.update(sql, stmt -> {
+            binder.bind(stmt, item);
+            stmt.setInt(getParameterCount(stmt), key);
+        });
+    }
+
+    /**
+     * Prepare statement once to check its SQL against database schema and take its parameter count
+     * from the driver, which knows which question marks are parameters.
+     * @param connection Connection to prepare statement with.
+     */
+    void validate(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            parameterCount = stmt.getParameterMetaData().getParameterCount();
+        }
+    }
+
+    private int getParameterCount(PreparedStatement stmt) throws SQLException {
+        int count = parameterCount;
+        if (count == 0) {
+            count = stmt.getParameterMetaData().getParameterCount();
+            parameterCount = count;
+        }
+        return count;
+    }
+}
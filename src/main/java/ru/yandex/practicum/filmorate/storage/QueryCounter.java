@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements run, rows returned and time spent in database by the current thread, counted by
+ * {@link CountingJdbcTemplate}. Counters only grow. A piece of work is measured from a mark taken before
+ * it; marks are kept in a small preallocated stack, so measurements could be nested and need no allocation.
+ * <p>
+ * While tracking is on, storage methods which ran statements are also counted by name, which shows a
+ * method called in a loop.
+ */
+public final class QueryCounter {
+    private static final int MAX_DEPTH = 8;
+    private static final ThreadLocal<QueryCounter> CURRENT = ThreadLocal.withInitial(QueryCounter::new);
+
+    private final long[] statementMarks = new long[MAX_DEPTH];
+    private final long[] rowMarks = new long[MAX_DEPTH];
+    private final long[] databaseTimeMarks = new long[MAX_DEPTH];
+    private long statements;
+    private long rows;
+    private long databaseTime;
+    private long statementStart;
+    private int depth;
+    private Map<String, Integer> queryingCalls;
+
+    private QueryCounter() {
+    }
+
+    /**
+     * Get counter of the current thread.
+     * @return Query counter.
+     */
+    public static QueryCounter current() {
+        return CURRENT.get();
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Get time spent in database, from start of statements till their results are read.
+     * @return Time in nanoseconds.
+     */
+    public long getDatabaseTime() {
+        return databaseTime;
+    }
+
+    /**
+     * Mark start of measured work.
+     */
+    public void mark() {
+        if (depth < MAX_DEPTH) {
+            statementMarks[depth] = statements;
+            rowMarks[depth] = rows;
+            databaseTimeMarks[depth] = databaseTime;
+        }
+        depth++;
+    }
+
+    /**
+     * Get amount of statements since the last mark, 0 if marks are nested too deep.
+     * @return Amount of statements.
+     */
+    public long getStatementsSinceMark() {
+        return depth > 0 && depth <= MAX_DEPTH ? statements - statementMarks[depth - 1] : 0;
+    }
+
+    /**
+     * Get amount of rows since the last mark, 0 if marks are nested too deep.
+     * @return Amount of rows.
+     */
+    public long getRowsSinceMark() {
+        return depth > 0 && depth <= MAX_DEPTH ? rows - rowMarks[depth - 1] : 0;
+    }
+
+    /**
+     * Get time spent in database since the last mark, 0 if marks are nested too deep.
+     * @return Time in nanoseconds.
+     */
+    public long getDatabaseTimeSinceMark() {
+        return depth > 0 && depth <= MAX_DEPTH ? databaseTime - databaseTimeMarks[depth - 1] : 0;
+    }
+
+    /**
+     * Remove the last mark once measured work is done.
+     */
+    public void unmark() {
+        if (depth > 0) depth--;
+    }
+
+    /**
+     * Start counting storage methods which ran statements, dropping previous counts.
+     */
+    public void startTracking() {
+        queryingCalls = new HashMap<>();
+    }
+
+    /**
+     * Stop counting storage methods which ran statements.
+     * @return Map of storage and method name, joined with a dot, to amount of calls which ran statements.
+     */
+    public Map<String, Integer> stopTracking() {
+        Map<String, Integer> result = queryingCalls != null ? queryingCalls : Map.of();
+        queryingCalls = null;
+        return result;
+    }
+
+    void statementStarted() {
+        statements++;
+        statementStart = System.nanoTime();
+    }
+
+    void statementFinished() {
+        databaseTime += System.nanoTime() - statementStart;
+    }
+
+    void queryingCallFinished(String name) {
+        if (queryingCalls != null) queryingCalls.merge(name, 1, Integer::sum);
+    }
+
+    void rowsReturned(long amount) {
+        rows += amount;
+    }
+}
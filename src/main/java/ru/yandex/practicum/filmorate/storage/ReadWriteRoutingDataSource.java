@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes connections of read-only transactions to the read data source, which could be a replica, and all
+ * other connections to the write one. Should be used through {@link #create(DataSource, DataSource)}, as the
+ * connection has to be taken lazily, once read-only flag of the starting transaction is known.
+ * <p>
+ * Reads stick to the write data source where they should see recent writes despite replication lag: in a
+ * scope of the thread, as a request, after a write in it or all along if the scope is opened as sticky, and
+ * in {@link #readFromWrite(Supplier)}. Connections outside of transactions are taken from the write one.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> READ_FROM_WRITE = new ThreadLocal<>();
+
+    enum Route {
+        WRITE, READ
+    }
+
+    private ReadWriteRoutingDataSource() {
+    }
+
+    /**
+     * Create data source routing connections between write and read data sources.
+     * @param write Data source of writes and of reads which should see recent writes.
+     * @param read Data source of read-only transactions.
+     * @return Routing data source.
+     */
+    public static DataSource create(DataSource write, DataSource read) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(Route.WRITE, write, Route.READ, read));
+        routing.setDefaultTargetDataSource(write);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Open scope of the current thread, as a request, where reads stick to the write data source after writes.
+     * @param sticky Whether reads stick to the write data source from start of the scope.
+     */
+    public static void openScope(boolean sticky) {
+        Scope scope = new Scope();
+        scope.sticky = sticky;
+        SCOPE.set(scope);
+    }
+
+    /**
+     * Check whether a read-write transaction took a connection in the scope of the current thread.
+     * @return True if scope was written to.
+     */
+    public static boolean isWritten() {
+        Scope scope = SCOPE.get();
+        return scope != null && scope.written;
+    }
+
+    /**
+     * Close scope of the current thread.
+     */
+    public static void closeScope() {
+        SCOPE.remove();
+    }
+
+    /**
+     * Get result of a read from the write data source.
+     * @param read Read to run.
+     * @return Result of read.
+     */
+    public static <T> T readFromWrite(Supplier<T> read) {
+        Boolean previous = READ_FROM_WRITE.get();
+        READ_FROM_WRITE.set(true);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) READ_FROM_WRITE.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Scope scope = SCOPE.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (scope != null && TransactionSynchronizationManager.isActualTransactionActive()) scope.written = true;
+            return Route.WRITE;
+        }
+        if (READ_FROM_WRITE.get() != null || scope != null && (scope.sticky || scope.written)) return Route.WRITE;
+        return Route.READ;
+    }
+
+    private static final class Scope {
+        private boolean sticky;
+        private boolean written;
+    }
+}
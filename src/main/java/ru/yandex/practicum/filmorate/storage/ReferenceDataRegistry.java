@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * In-memory copy of genres and MPA ratings. Both tables are seeded once and almost never change,
+ * so they are loaded at startup and served from id-indexed arrays of shared immutable objects.
+ * Every load gets a new version, which starts from load time so it keeps growing across restarts.
+ */
+@Slf4j
+@Component
+public class ReferenceDataRegistry {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(List.of(), List.of(), 0);
+
+    public ReferenceDataRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load genres and ratings from the database, replacing previously loaded ones.
+     */
+    @PostConstruct
+    public synchronized void reload() {
+        List<Genre> genres = jdbcTemplate.query("SELECT genre_id, genre_name FROM genres ORDER BY genre_id",
+                (resultSet, rowNum) -> new Genre(resultSet.getInt("genre_id"), resultSet.getString("genre_name")));
+        List<Rating> ratings = jdbcTemplate.query("SELECT rating_id, rating_name FROM ratings ORDER BY rating_id",
+                (resultSet, rowNum) -> new Rating(resultSet.getInt("rating_id"), resultSet.getString("rating_name")));
+        long version = Math.max(snapshot.version + 1, System.currentTimeMillis());
+        snapshot = new Snapshot(genres, ratings, version);
+        log.info("Reference data loaded: {} genres, {} ratings, version {}", genres.size(), ratings.size(), version);
+    }
+
+    /**
+     * Get version of loaded genres and ratings, which changes with every load.
+     * @return Version of reference data.
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Get all genres ordered by ID.
+     * @return Unmodifiable list of Genre objects.
+     */
+    public List<Genre> getAllGenres() {
+        return snapshot.genres;
+    }
+
+    /**
+     * Get genre by ID.
+     * @param genreId Genre ID.
+     * @return Genre object or null if there is no genre with such ID.
+     */
+    public Genre getGenre(int genreId) {
+        Genre[] genresById = snapshot.genresById;
+        return genreId >= 0 && genreId < genresById.length ? genresById[genreId] : null;
+    }
+
+    /**
+     * Get all MPA ratings ordered by ID.
+     * @return Unmodifiable list of Rating objects.
+     */
+    public List<Rating> getAllRatings() {
+        return snapshot.ratings;
+    }
+
+    /**
+     * Get MPA rating by ID.
+     * @param ratingId Rating ID.
+     * @return Rating object or null if there is no rating with such ID.
+     */
+    public Rating getRating(int ratingId) {
+        Rating[] ratingsById = snapshot.ratingsById;
+        return ratingId >= 0 && ratingId < ratingsById.length ? ratingsById[ratingId] : null;
+    }
+
+    private static final class Snapshot {
+        private final List<Genre> genres;
+        private final Genre[] genresById;
+        private final List<Rating> ratings;
+        private final Rating[] ratingsById;
+        private final long version;
+
+        private Snapshot(List<Genre> genres, List<Rating> ratings, long version) {
+            this.genres = List.copyOf(genres);
+            this.genresById = new Genre[genres.stream().mapToInt(Genre::getId).max().orElse(0) + 1];
+            genres.forEach(g -> genresById[g.getId()] = g);
+            this.ratings = List.copyOf(ratings);
+            this.ratingsById = new Rating[ratings.stream().mapToInt(Rating::getId).max().orElse(0) + 1];
+            ratings.forEach(r -> ratingsById[r.getId()] = r);
+            this.version = version;
+        }
+    }
+}
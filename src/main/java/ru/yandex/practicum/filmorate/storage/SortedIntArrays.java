@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Operations on sorted arrays of distinct ints, used as compact sets of IDs. Arrays are never changed
+ * in place, every change returns a new array, so published arrays are safe to read from any thread.
+ */
+public final class SortedIntArrays {
+    public static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    /**
+     * Build sorted array from collection of IDs.
+     * @param values Collection of IDs, could be null.
+     * @return Sorted array of distinct IDs.
+     */
+    public static int[] of(Collection<Integer> values) {
+        if (values == null || values.isEmpty()) return EMPTY;
+        return values.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+
+    /**
+     * Convert sorted array to set of IDs keeping the order.
+     * @param array Sorted array.
+     * @return New mutable set of IDs.
+     */
+    public static Set<Integer> toSet(int[] array) {
+        Set<Integer> result = new LinkedHashSet<>();
+        for (int value : array) result.add(value);
+        return result;
+    }
+
+    /**
+     * Add value to sorted array.
+     * @param array Sorted array, could be null.
+     * @param value Value to add.
+     * @return Same array if value is already there, new array otherwise.
+     */
+    public static int[] insert(int[] array, int value) {
+        if (array == null) return new int[] {value};
+        int index = Arrays.binarySearch(array, value);
+        if (index >= 0) return array;
+        int position = -index - 1;
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    /**
+     * Remove value from sorted array.
+     * @param array Sorted array, could be null.
+     * @param value Value to remove.
+     * @return Same array if there is no such value, new array otherwise.
+     */
+    public static int[] remove(int[] array, int value) {
+        if (array == null) return null;
+        int position = Arrays.binarySearch(array, value);
+        if (position < 0) return array;
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+
+    /**
+     * Intersect two sorted arrays with one linear merge.
+     * @param first First sorted array.
+     * @param second Second sorted array.
+     * @return Sorted array of values present in both arrays.
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
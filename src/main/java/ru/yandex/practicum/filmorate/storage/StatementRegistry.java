@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Insert and update statements of films and users. They are built once and checked against
+ * the database at startup, so a broken statement fails the application start instead of a request.
+ */
+@Slf4j
+@Component
+public class StatementRegistry {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ModelStatement<Film> filmInsert = ModelStatement.insert(
+            "INSERT INTO films (film_name, film_description, film_release_date, film_duration, film_rating_id) " +
+            "VALUES (?, ?, ?, ?, ?)", "film_id", StatementRegistry::bindFilm);
+
+    private final ModelStatement<Film> filmUpdate = ModelStatement.update(
+            "UPDATE films SET film_name = ?, film_description = ?, film_release_date = ?, film_duration = ?, film_rating_id = ?, " +
+            "film_version = film_version + 1 WHERE film_id = ?", StatementRegistry::bindFilm);
+
+    private final ModelStatement<User> userInsert = ModelStatement.insert(
+            "INSERT INTO users (user_email, user_login, user_name, user_birthday) VALUES (?, ?, ?, ?)",
+            "user_id", StatementRegistry::bindUser);
+
+    private final ModelStatement<User> userUpdate = ModelStatement.update(
+            "UPDATE users SET user_email = ?, user_login = ?, user_name = ?, user_birthday = ?, " +
+            "user_version = user_version + 1 WHERE user_id = ?",
+            StatementRegistry::bindUser);
+
+    public StatementRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Prepare every statement once to check it against the database schema.
+     */
+    @PostConstruct
+    public void validate() {
+        List<ModelStatement<?>> statements = List.of(filmInsert, filmUpdate, userInsert, userUpdate);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            for (ModelStatement<?> statement : statements) statement.validate(connection);
+            return null;
+        });
+        log.info("{} storage statements validated", statements.size());
+    }
+
+    public ModelStatement<Film> filmInsert() {
+        return filmInsert;
+    }
+
+    public ModelStatement<Film> filmUpdate() {
+        return filmUpdate;
+    }
+
+    public ModelStatement<User> userInsert() {
+        return userInsert;
+    }
+
+    public ModelStatement<User> userUpdate() {
+        return userUpdate;
+    }
+
+    private static void bindFilm(PreparedStatement stmt, Film film) throws SQLException {
+        stmt.setString(1, film.getName());
+        stmt.setString(2, film.getDescription());
+        stmt.setObject(3, film.getReleaseDate());
+        stmt.setInt(4, film.getDuration());
+        stmt.setObject(5, film.getMpa() != null ? film.getMpa().getId() : null);
+    }
+
+    private static void bindUser(PreparedStatement stmt, User user) throws SQLException {
+        stmt.setString(1, user.getEmail());
+        stmt.setString(2, user.getLogin());
+        stmt.setString(3, user.getName());
+        stmt.setObject(4, user.getBirthday());
+    }
+}
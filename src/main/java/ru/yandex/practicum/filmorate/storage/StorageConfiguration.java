@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Storages used by services: database storages, behind read-through caches unless caching is disabled
+ * and instrumented unless storage metrics are disabled. Caches are bounded by size with Caffeine's
+ * TinyLFU eviction and expire entries after a while, which also limits staleness after writes done past
+ * the storages. Cache statistics are published as metrics.
+ */
+@Slf4j
+@Configuration
+public class StorageConfiguration {
+    private final MeterRegistry meterRegistry;
+    private final boolean metricsEnabled;
+    private final long maximumSize;
+    private final long expireAfterWrite;
+
+    public StorageConfiguration(MeterRegistry meterRegistry,
+                                @Value("${filmorate.storage.metrics.enabled:true}") boolean metricsEnabled,
+                                @Value("${filmorate.cache.maximum-size:10000}") long maximumSize,
+                                @Value("${filmorate.cache.expire-after-write:300000}") long expireAfterWrite) {
+        this.meterRegistry = meterRegistry;
+        this.metricsEnabled = metricsEnabled;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new CountingJdbcTemplate(dataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public CachingFilmStorage cachingFilmStorage(@Qualifier("dbFilmStorage") FilmStorage dbFilmStorage) {
+        Cache<Integer, Optional<Film>> films = createCache("films");
+        return new CachingFilmStorage(dbFilmStorage, films);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public CachingUserStorage cachingUserStorage(@Qualifier("dbUserStorage") UserStorage dbUserStorage,
+                                                 CachingFilmStorage cachingFilmStorage) {
+        Cache<Integer, Optional<User>> users = createCache("users");
+        return new CachingUserStorage(dbUserStorage, users, cachingFilmStorage::invalidateAll);
+    }
+
+    @Bean
+    public FilmStorage filmStorage(@Qualifier("dbFilmStorage") FilmStorage dbFilmStorage,
+                                   ObjectProvider<CachingFilmStorage> cachingFilmStorage,
+                                   StorageMetrics storageMetrics) {
+        FilmStorage filmStorage = cachingFilmStorage.getIfAvailable();
+        if (filmStorage == null) filmStorage = dbFilmStorage;
+        return metricsEnabled ? new InstrumentedFilmStorage(filmStorage, storageMetrics) : filmStorage;
+    }
+
+    @Bean
+    public UserStorage userStorage(@Qualifier("dbUserStorage") UserStorage dbUserStorage,
+                                   ObjectProvider<CachingUserStorage> cachingUserStorage,
+                                   StorageMetrics storageMetrics) {
+        UserStorage userStorage = cachingUserStorage.getIfAvailable();
+        if (userStorage == null) userStorage = dbUserStorage;
+        return metricsEnabled ? new InstrumentedUserStorage(userStorage, storageMetrics) : userStorage;
+    }
+
+    private <V> Cache<Integer, V> createCache(String name) {
+        Cache<Integer, V> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWrite))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        log.info("Storage cache {} of {} entries, expiring after {} ms", name, maximumSize, expireAfterWrite);
+        return cache;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency, statements and rows per call of storage methods, recorded by instrumented storages. Meters keep
+ * percentiles in HdrHistogram based recorders, which are lock-free and allocate nothing per call, so
+ * recording could stay on under full load.
+ */
+@Component
+public class StorageMetrics {
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Probe> probes = new ConcurrentSkipListMap<>();
+
+    public StorageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Get probe of storage method, registering its meters on first use.
+     * @param storage Name of storage.
+     * @param method Name of method.
+     * @return Probe to record calls of method with.
+     */
+    public Probe probe(String storage, String method) {
+        return probes.computeIfAbsent(storage + "." + method, name -> new Probe(name,
+                Timer.builder("filmorate.storage.calls")
+                        .description("Latency of storage method calls")
+                        .tags("storage", storage, "method", method)
+                        .publishPercentiles(PERCENTILES)
+                        .register(meterRegistry),
+                DistributionSummary.builder("filmorate.storage.statements")
+                        .description("SQL statements per storage method call")
+                        .tags("storage", storage, "method", method)
+                        .publishPercentiles(PERCENTILES)
+                        .register(meterRegistry),
+                DistributionSummary.builder("filmorate.storage.rows")
+                        .description("Rows returned per storage method call")
+                        .tags("storage", storage, "method", method)
+                        .publishPercentiles(PERCENTILES)
+                        .register(meterRegistry)));
+    }
+
+    /**
+     * Get all probes.
+     * @return Map of storage and method name, joined with a dot, to probe, ordered by name.
+     */
+    public Map<String, Probe> getProbes() {
+        return probes;
+    }
+
+    /**
+     * Meters of one storage method.
+     */
+    public static final class Probe {
+        private final String name;
+        private final Timer latency;
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+
+        private Probe(String name, Timer latency, DistributionSummary statements, DistributionSummary rows) {
+            this.name = name;
+            this.latency = latency;
+            this.statements = statements;
+            this.rows = rows;
+        }
+
+        /**
+         * Start measuring a call.
+         * @return Start time to pass to {@link #stop(long)}.
+         */
+        public long start() {
+            QueryCounter.current().mark();
+            return System.nanoTime();
+        }
+
+        /**
+         * Record a call started with {@link #start()}.
+         * @param start Start time of the call.
+         */
+        public void stop(long start) {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            QueryCounter counter = QueryCounter.current();
+            long callStatements = counter.getStatementsSinceMark();
+            statements.record(callStatements);
+            rows.record(counter.getRowsSinceMark());
+            if (callStatements > 0) counter.queryingCallFinished(name);
+            counter.unmark();
+        }
+
+        public Timer getLatency() {
+            return latency;
+        }
+
+        public DistributionSummary getStatements() {
+            return statements;
+        }
+
+        public DistributionSummary getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint with statistics of called storage methods. Counts and means cover the whole uptime,
+ * percentiles cover the last few minutes.
+ */
+@Component
+@Endpoint(id = "storage")
+public class StorageMetricsEndpoint {
+    private final StorageMetrics metrics;
+
+    public StorageMetricsEndpoint(StorageMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get statistics of storage methods called at least once.
+     * @return Map of storage and method name, joined with a dot, to statistics of method.
+     */
+    @ReadOperation
+    public Map<String, MethodStats> methods() {
+        Map<String, MethodStats> result = new LinkedHashMap<>();
+        metrics.getProbes().forEach((name, probe) -> {
+            HistogramSnapshot latency = probe.getLatency().takeSnapshot();
+            if (latency.count() == 0) return;
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (ValueAtPercentile value : latency.percentileValues()) {
+                String key = "p" + BigDecimal.valueOf(value.percentile()).movePointRight(2).stripTrailingZeros().toPlainString();
+                percentiles.put(key, value.value(TimeUnit.MILLISECONDS));
+            }
+            HistogramSnapshot statements = probe.getStatements().takeSnapshot();
+            HistogramSnapshot rows = probe.getRows().takeSnapshot();
+            result.put(name, new MethodStats(latency.count(), latency.mean(TimeUnit.MILLISECONDS),
+                    latency.max(TimeUnit.MILLISECONDS), percentiles,
+                    statements.mean(), statements.max(), rows.mean(), rows.max()));
+        });
+        return result;
+    }
+
+    /**
+     * Statistics of one storage method, times in milliseconds.
+     */
+    @Value
+    public static class MethodStats {
+        long calls;
+        double meanMs;
+        double maxMs;
+        Map<String, Double> percentilesMs;
+        double meanStatements;
+        double maxStatements;
+        double meanRows;
+        double maxRows;
+    }
+}
@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     /**
@@ -13,6 +15,13 @@ public interface UserStorage {
      */
     User addUser(User user);
 
+    /**
+     * Add users to the storage at once, either all of them or none.
+     * @param users User objects to add.
+     * @return Same User objects with IDs set.
+     */
+    List<User> addUsers(List<User> users);
+
     /**
      * Remove User object from storage by ID.
      * @param userId ID of User to remove.
@@ -40,6 +49,21 @@ public interface UserStorage {
      */
     Optional<User> getUser(int userId);
 
+    /**
+     * Get version of user without loading it. Version changes on every change of user or its friendships.
+     * @param userId User ID.
+     * @return Version of user or empty Optional if user is not found.
+     */
+    Optional<Long> getUserVersion(int userId);
+
+    /**
+     * Get version of user friends list without loading it. Version changes when friendships of user
+     * change and when any of friends changes.
+     * @param userId User ID.
+     * @return Version of friends list or empty Optional if user is not found.
+     */
+    Optional<Long> getFriendsVersion(int userId);
+
     /**
      * Get User friends by ID.
      * @param userId User ID.
@@ -55,6 +79,14 @@ public interface UserStorage {
      */
     List<User> getUsers(int limit, int offset);
 
+    /**
+     * Get User objects from storage following given user ID, ordered by ID.
+     * @param afterId ID of the last User object of previous page, 0 for the first page.
+     * @param limit Amount of users to get from storage.
+     * @return List of User objects, could be empty.
+     */
+    List<User> getUsersAfter(int afterId, int limit);
+
     /**
      * Get list of all users from storage.
      * @return List of User objects.
@@ -62,7 +94,20 @@ public interface UserStorage {
     List<User> getAllUsers();
 
     /**
-     * Save friendship between two users.
+     * Get User objects from storage by their IDs.
+     * @param userIds IDs of User objects to get.
+     * @return List of found User objects in order of given IDs, unknown IDs are skipped.
+     */
+    List<User> getUsersByIds(List<Integer> userIds);
+
+    /**
+     * Pass all Users from storage to action one by one, ordered by ID, without collecting them in memory.
+     * @param action Action to perform for each User object.
+     */
+    void forEachUser(Consumer<User> action);
+
+    /**
+     * Save friendship between two users. Saving existing friendship changes nothing.
      * @param firstUserId Fist user int id.
      * @param secondUserId Second user int id.
      * @return List of users if saving was successfull.
@@ -84,4 +129,17 @@ public interface UserStorage {
      * @return List of common friends between two users.
      */
     List<User> getCommonFriends(int firstUserId, int secondUserId);
+
+    /**
+     * Get friendship graph as sorted arrays of friend IDs per user.
+     * @return Map of user ID to sorted array of IDs of user friends, users without friends could be missing.
+     */
+    Map<Integer, int[]> getFriendsAdjacency();
+
+    /**
+     * Get friends of given users as sorted arrays of friend IDs.
+     * @param userIds User IDs.
+     * @return Map of user ID to sorted array of IDs of user friends, users without friends or not found are missing.
+     */
+    Map<Integer, int[]> getFriendsAdjacencyByIds(List<Integer> userIds);
 }
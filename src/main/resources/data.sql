@@ -1,15 +1,15 @@
-INSERT INTO genres (genre_name)
-       VALUES ('Комедия'),
-              ('Драма'),
-              ('Мультфильм'),
-              ('Триллер'),
-              ('Документальный'),
-              ('Боевик');
+MERGE INTO genres (genre_id, genre_name) KEY (genre_id)
+       VALUES (1, 'Комедия'),
+              (2, 'Драма'),
+              (3, 'Мультфильм'),
+              (4, 'Триллер'),
+              (5, 'Документальный'),
+              (6, 'Боевик');
 
-INSERT INTO ratings (rating_name)
-       VALUES ('G'),
-              ('PG'),
-              ('PG-13'),
-              ('R'),
-              ('NC-17');
+MERGE INTO ratings (rating_id, rating_name) KEY (rating_id)
+       VALUES (1, 'G'),
+              (2, 'PG'),
+              (3, 'PG-13'),
+              (4, 'R'),
+              (5, 'NC-17');
 
@@ -15,12 +15,20 @@ CREATE TABLE IF NOT EXISTS films (
     film_release_date   date,
     film_duration       integer,
     film_rating_id      integer,
+    like_count          integer         NOT NULL DEFAULT 0,
+    film_version        integer         NOT NULL DEFAULT 0,
     FOREIGN KEY (film_rating_id)
             REFERENCES ratings (rating_id)
             ON DELETE CASCADE
             ON UPDATE CASCADE
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count integer NOT NULL DEFAULT 0;
+
+ALTER TABLE films ADD COLUMN IF NOT EXISTS film_version integer NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (like_count DESC, film_name, film_id);
+
 CREATE TABLE IF NOT EXISTS film_genres (
     film_id             integer         NOT NULL,
     genre_id            integer         NOT NULL,
@@ -40,9 +48,12 @@ CREATE TABLE IF NOT EXISTS users (
     user_email          varchar(255)    NOT NULL UNIQUE,
     user_login          varchar(255)    NOT NULL UNIQUE,
     user_name           varchar(255)    NOT NULL,
-    user_birthday       date
+    user_birthday       date,
+    user_version        integer         NOT NULL DEFAULT 0
 );
 
+ALTER TABLE users ADD COLUMN IF NOT EXISTS user_version integer NOT NULL DEFAULT 0;
+
 CREATE TABLE IF NOT EXISTS films_liked (
     user_id             integer         NOT NULL,
     film_id             integer         NOT NULL,
@@ -71,3 +82,14 @@ CREATE TABLE IF NOT EXISTS friendships (
             ON UPDATE CASCADE,
     PRIMARY KEY (from_id, to_id)
 );
+
+CREATE TABLE IF NOT EXISTS change_log (
+    change_id       bigint          GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node_id         varchar(36)     NOT NULL,
+    entity_type     varchar(16)     NOT NULL,
+    entity_id       integer,
+    entity_version  integer,
+    changed_at      timestamp       NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS change_log_changed_at_idx ON change_log (changed_at);
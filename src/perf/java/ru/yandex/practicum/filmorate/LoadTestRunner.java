@@ -0,0 +1,309 @@
+package ru.yandex.practicum.filmorate;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.storage.PowerLawDataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the REST API: loads a power-law dataset to an in-memory H2 database, starts the application
+ * on it with an embedded server on a free port and drives a weighted mix of endpoints from concurrent
+ * clients. Prints throughput and latency percentiles per endpoint and saves them as JSON, so runs of
+ * different builds could be compared.
+ * <p>
+ * Clients send the next request once the previous one is answered, so latency under overload is
+ * understated and throughput is what the server sustains with that many clients.
+ * <p>
+ * Run with {@code mvn -Pperf,load verify -Dload.args="--size=100000 --clients=32"}. Arguments:
+ * <ul>
+ *     <li>{@code --size}: amount of films and of users, 10000 by default;</li>
+ *     <li>{@code --clients}: concurrent clients, 16 by default;</li>
+ *     <li>{@code --warmup}: seconds of load before measuring, 10 by default;</li>
+ *     <li>{@code --duration}: seconds of measured load, 30 by default;</li>
+ *     <li>{@code --mix}: weights of endpoints, as {@code getFilm=30,addLike=10}, endpoints missing are not called;</li>
+ *     <li>{@code --result}: JSON file with results, {@code target/load-result.json} by default.</li>
+ * </ul>
+ */
+public final class LoadTestRunner {
+    private static final String DEFAULT_MIX = "getFilm=25,getTopFilms=15,getUser=15,getFriends=10,getCommonFriends=10,"
+            + "addLike=10,removeLike=5,addFriend=5,addFilm=3,updateUser=2";
+
+    private final PowerLawDataset dataset;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Operation[] weightedOperations;
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private LoadTestRunner(PowerLawDataset dataset, ObjectMapper objectMapper, int port, Map<Operation, Integer> mix) {
+        this.dataset = dataset;
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.baseUrl = "http://localhost:" + port;
+        List<Operation> weighted = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) weighted.add(operation);
+            latencies.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        });
+        this.weightedOperations = weighted.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int size = Integer.parseInt(options.getOrDefault("size", "10000"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "16"));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "10"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "30"));
+        Map<Operation, Integer> mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        File result = new File(options.getOrDefault("result", "target/load-result.json"));
+
+        // Logging is configured by the application later, dataset is loaded with less noise before
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        String url = "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1";
+        PowerLawDataset dataset = new PowerLawDataset(size);
+        long loadStart = System.nanoTime();
+        dataset.load(url);
+        System.out.printf("Loaded %d films and users in %d s%n", size,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - loadStart));
+
+        // Arguments, as they override application properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + url,
+                        "--spring.datasource.password=",
+                        "--filmorate.query-budget.enforce=false",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN")) {
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            LoadTestRunner runner = new LoadTestRunner(dataset, objectMapper, port, mix);
+            Map<String, Map<String, Object>> report = runner.run(clients, warmup, duration);
+            runner.print(report, clients, duration);
+            File directory = result.getAbsoluteFile().getParentFile();
+            if (directory != null) directory.mkdirs();
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(result, report);
+            System.out.println("Results saved to " + result);
+        }
+    }
+
+    private Map<String, Map<String, Object>> run(int clients, long warmup, long duration) throws InterruptedException {
+        long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(duration);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) executor.execute(() -> runClient(measureStart, end));
+        executor.shutdown();
+        executor.awaitTermination(warmup + duration + 60, TimeUnit.SECONDS);
+
+        Map<String, Map<String, Object>> report = new LinkedHashMap<>();
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Operation operation : latencies.keySet()) {
+            Histogram histogram = latencies.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).sum();
+            all.add(histogram);
+            allErrors += operationErrors;
+            report.put(operation.getName(), stats(histogram, operationErrors, duration));
+        }
+        report.put("all", stats(all, allErrors, duration));
+        return report;
+    }
+
+    private void runClient(long measureStart, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.nanoTime();
+        while (now < end) {
+            Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+            boolean failed;
+            try {
+                HttpResponse<Void> response = client.send(operation.request(this),
+                        HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long start = now;
+            now = System.nanoTime();
+            if (start < measureStart) continue;
+            latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(now - start));
+            if (failed) errors.get(operation).increment();
+        }
+    }
+
+    private static Map<String, Object> stats(Histogram histogram, long errors, long duration) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", histogram.getTotalCount());
+        stats.put("errors", errors);
+        stats.put("throughput", (double) histogram.getTotalCount() / duration);
+        stats.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+        stats.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+        stats.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+        stats.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return stats;
+    }
+
+    private void print(Map<String, Map<String, Object>> report, int clients, long duration) {
+        System.out.printf("%d clients, %d s measured%n", clients, duration);
+        System.out.printf("%-18s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        report.forEach((name, stats) -> System.out.printf("%-18s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name,
+                stats.get("requests"), stats.get("errors"), stats.get("throughput"),
+                stats.get("p50Ms"), stats.get("p99Ms"), stats.get("p999Ms"), stats.get("maxMs")));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, Object body) {
+        HttpRequest.BodyPublisher publisher;
+        try {
+            publisher = body != null
+                    ? HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))
+                    : HttpRequest.BodyPublishers.noBody();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, publisher)
+                .build();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) throw new IllegalArgumentException("Unknown argument " + arg);
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) weights.put(Operation.byName(parts[0]), weight);
+        }
+        if (weights.isEmpty()) throw new IllegalArgumentException("Mix has no endpoints");
+        return weights;
+    }
+
+    /**
+     * Called endpoints, popular films and users more often.
+     */
+    enum Operation {
+        GET_FILM("getFilm") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.get("/films/" + runner.dataset.popularId());
+            }
+        },
+        GET_TOP_FILMS("getTopFilms") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.get("/films/popular?count=10");
+            }
+        },
+        GET_USER("getUser") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.get("/users/" + runner.dataset.popularId());
+            }
+        },
+        GET_FRIENDS("getFriends") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.get("/users/" + runner.dataset.randomId() + "/friends");
+            }
+        },
+        GET_COMMON_FRIENDS("getCommonFriends") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.get("/users/" + runner.dataset.randomId() + "/friends/common/" + runner.dataset.popularId());
+            }
+        },
+        ADD_LIKE("addLike") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.send("PUT", "/films/" + runner.dataset.popularId() + "/like/" + runner.dataset.randomId(), null);
+            }
+        },
+        REMOVE_LIKE("removeLike") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.send("DELETE", "/films/" + runner.dataset.popularId() + "/like/" + runner.dataset.randomId(), null);
+            }
+        },
+        ADD_FRIEND("addFriend") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.send("PUT", "/users/" + runner.dataset.randomId() + "/friends/" + runner.dataset.popularId(), null);
+            }
+        },
+        ADD_FILM("addFilm") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                return runner.send("POST", "/films", runner.dataset.newFilm());
+            }
+        },
+        UPDATE_USER("updateUser") {
+            @Override
+            HttpRequest request(LoadTestRunner runner) {
+                int id = runner.dataset.randomId();
+                Map<String, Object> user = new LinkedHashMap<>();
+                user.put("id", id);
+                user.put("email", "user" + id + "@benchmark.io");
+                user.put("login", "user" + id);
+                user.put("name", "Updated user " + id);
+                user.put("birthday", "1980-01-01");
+                return runner.send("PUT", "/users", user);
+            }
+        };
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        abstract HttpRequest request(LoadTestRunner runner);
+
+        static Operation byName(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equals(name)) return operation;
+            }
+            throw new IllegalArgumentException("Unknown endpoint " + name);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.util.UUID;
+
+/**
+ * Db storages over an H2 database with the application schema and pool, with transactions handled as in
+ * the application. The database is a new in-memory one unless {@code benchmark.database.url} is set. Not a {@code @Configuration}, so the application's component scan
+ * doesn't pick it from test classes left by a benchmark build.
+ */
+@EnableTransactionManagement(proxyTargetClass = true)
+@Import({ReferenceDataRegistry.class, StatementRegistry.class, ChangeLog.class, DbFilmStorage.class, DbUserStorage.class})
+class BenchmarkDatabaseConfiguration {
+    @Bean
+    public HikariDataSource dataSource(@Value("${benchmark.database.url:}") String url) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url.isEmpty() ? "jdbc:h2:mem:benchmark-" + UUID.randomUUID() : url);
+        dataSource.setUsername("sa");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(HikariDataSource dataSource) {
+        return new CountingJdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(HikariDataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per film insert with {@link ModelStatement} against the former path: a new {@link SimpleJdbcInsert}
+ * per call, which looks up table metadata, fed with a map of column values. Run with {@code -prof gc} to
+ * compare allocation per insert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmInsertBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ModelStatement<Film> filmInsert;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(BenchmarkDatabaseConfiguration.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        filmInsert = context.getBean(StatementRegistry.class).filmInsert();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int simpleJdbcInsert() {
+        return createSimpleJdbcInsert().executeAndReturnKey(toMap(newFilm())).intValue();
+    }
+
+    @Benchmark
+    public int modelStatementInsert() {
+        return filmInsert.insert(jdbcTemplate, newFilm());
+    }
+
+    /**
+     * Former batch path, one map per film. Unlike {@link #modelStatementInsertAll()} it doesn't read
+     * generated keys back, so it does a bit less work.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    @SuppressWarnings("unchecked")
+    public int[] simpleJdbcInsertBatch() {
+        List<Map<String, Object>> films = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) films.add(toMap(newFilm()));
+        return createSimpleJdbcInsert().executeBatch(films.toArray(new Map[0]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Film> modelStatementInsertAll() {
+        List<Film> films = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) films.add(newFilm());
+        filmInsert.insertAll(jdbcTemplate, films, Film::setId);
+        return films;
+    }
+
+    private SimpleJdbcInsert createSimpleJdbcInsert() {
+        return new SimpleJdbcInsert(jdbcTemplate).withTableName("films")
+                .usingColumns("film_name", "film_description", "film_release_date", "film_duration", "film_rating_id")
+                .usingGeneratedKeyColumns("film_id");
+    }
+
+    private Film newFilm() {
+        int key = ++nextKey;
+        Film film = new Film();
+        film.setName("Film " + key);
+        film.setDescription("Description of film " + key);
+        film.setReleaseDate(LocalDate.of(1900 + key % 120, 1 + key % 12, 1 + key % 28));
+        film.setDuration(60 + key % 120);
+        film.setMpa(new Rating(1 + key % 5, null));
+        return film;
+    }
+
+    /**
+     * Column values of a film as the former {@code Film.toMap()} built them.
+     */
+    private static Map<String, Object> toMap(Film film) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("film_id", film.getId());
+        values.put("film_name", film.getName());
+        values.put("film_description", film.getDescription());
+        values.put("film_release_date", film.getReleaseDate());
+        values.put("film_duration", film.getDuration());
+        if (film.getMpa() != null) values.put("film_rating_id", film.getMpa().getId());
+        return values;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of film storage operations over a loaded power-law dataset. Reads and likes pick popular
+ * films more often, updates pick any film.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmStorageBenchmark {
+    private static final int BATCH_SIZE = 100;
+    private static final int TOP_SIZE = 10;
+
+    @Param({"MEMORY", "H2", "H2_CACHED"})
+    private StorageBackend backend;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private StorageBackend.Storages storages;
+    private PowerLawDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        storages = backend.create();
+        dataset = new PowerLawDataset(size);
+        dataset.load(storages.films, storages.users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public Film addFilm() {
+        return storages.films.addFilm(dataset.newFilm());
+    }
+
+    @Benchmark
+    public List<Film> addFilms() {
+        List<Film> films = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) films.add(dataset.newFilm());
+        return storages.films.addFilms(films);
+    }
+
+    @Benchmark
+    public Optional<Film> getFilm() {
+        return storages.films.getFilm(dataset.popularId());
+    }
+
+    @Benchmark
+    public Optional<Film> updateFilm() {
+        int filmId = dataset.randomId();
+        return storages.films.updateFilm(filmId, dataset.film(filmId));
+    }
+
+    @Benchmark
+    public Film likeAndUnlike() {
+        User user = new User();
+        user.setId(dataset.randomId());
+        Film film = new Film();
+        film.setId(dataset.popularId());
+        storages.films.saveFilmLike(user, film);
+        return storages.films.removeFilmLike(user, film);
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return storages.films.getTopFilms(TOP_SIZE);
+    }
+}
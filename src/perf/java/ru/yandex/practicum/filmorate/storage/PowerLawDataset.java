@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Films and users with power-law popularity: a few films get most of the likes and a few users are
+ * friends of most others, like in real data. Generated from a fixed seed, so every run loads the same data.
+ */
+public final class PowerLawDataset {
+    private static final long SEED = 42;
+    private static final double EXPONENT = 1.0;
+    private static final int LIKES_PER_USER = 5;
+    private static final int FRIENDS_PER_USER = 3;
+    private static final int CHUNK_SIZE = 10_000;
+
+    private final int size;
+    private final double[] popularity;
+    private final AtomicInteger nextKey;
+
+    /**
+     * @param size Amount of films and of users.
+     */
+    public PowerLawDataset(int size) {
+        this.size = size;
+        this.nextKey = new AtomicInteger(size);
+        this.popularity = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1 / Math.pow(rank + 1, EXPONENT);
+            popularity[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) popularity[rank] /= sum;
+    }
+
+    /**
+     * Create application schema in H2 database and load films, users, likes and friendships to it.
+     * @param url JDBC URL of database, which should be empty.
+     */
+    public void load(String url) {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources()
+                    .addFirst(new MapPropertySource("dataset", Map.of("benchmark.database.url", url)));
+            context.register(BenchmarkDatabaseConfiguration.class);
+            context.refresh();
+            load(context.getBean(DbFilmStorage.class), context.getBean(DbUserStorage.class));
+        }
+    }
+
+    /**
+     * Load films, users, likes and friendships to empty storages.
+     * @param films Film storage.
+     * @param users User storage.
+     */
+    void load(FilmStorage films, UserStorage users) {
+        for (int from = 1; from <= size; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, size + 1);
+            List<User> userChunk = new ArrayList<>(to - from);
+            List<Film> filmChunk = new ArrayList<>(to - from);
+            for (int key = from; key < to; key++) {
+                userChunk.add(user(key));
+                filmChunk.add(film(key));
+            }
+            users.addUsers(userChunk);
+            films.addFilms(filmChunk);
+        }
+
+        Random random = new Random(SEED);
+        List<int[]> likes = new ArrayList<>(CHUNK_SIZE);
+        for (long i = 0; i < (long) size * LIKES_PER_USER; i++) {
+            likes.add(new int[] {1 + random.nextInt(size), popularId(random.nextDouble())});
+            if (likes.size() == CHUNK_SIZE) {
+                films.saveFilmLikes(likes, List.of());
+                likes.clear();
+            }
+        }
+        films.saveFilmLikes(likes, List.of());
+
+        for (long i = 0; i < (long) size * FRIENDS_PER_USER; i++) {
+            int userId = 1 + random.nextInt(size);
+            int friendId = popularId(random.nextDouble());
+            if (userId != friendId) users.saveFriendship(userId, friendId);
+        }
+    }
+
+    /**
+     * Get ID of loaded film or user, popular ones more often.
+     */
+    public int popularId() {
+        return popularId(ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Get ID of loaded film or user, all equally often.
+     */
+    public int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    /**
+     * Create film which is not in the dataset.
+     */
+    public Film newFilm() {
+        return film(nextKey.incrementAndGet());
+    }
+
+    /**
+     * Create user which is not in the dataset, with unique email and login.
+     */
+    public User newUser() {
+        return user(nextKey.incrementAndGet());
+    }
+
+    Film film(int key) {
+        Film film = new Film();
+        film.setName("Film " + key);
+        film.setDescription("Description of film " + key);
+        film.setReleaseDate(LocalDate.of(1900 + key % 120, 1 + key % 12, 1 + key % 28));
+        film.setDuration(60 + key % 120);
+        film.setMpa(new Rating(1 + key % 5, null));
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int i = 0; i < key % 3; i++) genres.add(new Genre(1 + (key + i) % 6, null));
+        film.setGenres(genres);
+        return film;
+    }
+
+    User user(int key) {
+        User user = new User();
+        user.setEmail("user" + key + "@benchmark.io");
+        user.setLogin("user" + key);
+        user.setName("User " + key);
+        user.setBirthday(LocalDate.of(1950 + key % 50, 1 + key % 12, 1 + key % 28));
+        return user;
+    }
+
+    private int popularId(double probability) {
+        int rank = Arrays.binarySearch(popularity, probability);
+        return 1 + Math.min(rank >= 0 ? rank : -rank - 1, size - 1);
+    }
+}
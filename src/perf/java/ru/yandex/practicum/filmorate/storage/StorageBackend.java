@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Storage implementations to benchmark, each created empty.
+ */
+public enum StorageBackend {
+    MEMORY {
+        @Override
+        Storages create() {
+            return new Storages(new InMemoryFilmStorage(), new InMemoryUserStorage(), () -> { });
+        }
+    },
+    H2 {
+        @Override
+        Storages create() {
+            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(BenchmarkDatabaseConfiguration.class);
+            return new Storages(context.getBean(DbFilmStorage.class), context.getBean(DbUserStorage.class), context::close);
+        }
+    },
+    H2_CACHED {
+        @Override
+        Storages create() {
+            Storages storages = H2.create();
+            CachingFilmStorage films = new CachingFilmStorage(storages.films, Caffeine.newBuilder().maximumSize(CACHE_SIZE).build());
+            CachingUserStorage users = new CachingUserStorage(storages.users, Caffeine.newBuilder().maximumSize(CACHE_SIZE).build(),
+                    films::invalidateAll);
+            return new Storages(films, users, storages.close);
+        }
+    };
+
+    private static final int CACHE_SIZE = 10_000;
+
+    abstract Storages create();
+
+    static final class Storages implements AutoCloseable {
+        final FilmStorage films;
+        final UserStorage users;
+        private final Runnable close;
+
+        Storages(FilmStorage films, UserStorage users, Runnable close) {
+            this.films = films;
+            this.users = users;
+            this.close = close;
+        }
+
+        @Override
+        public void close() {
+            close.run();
+        }
+    }
+}
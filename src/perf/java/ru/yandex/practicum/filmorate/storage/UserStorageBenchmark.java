@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of user storage operations over a loaded power-law dataset. Friends lists are asked of
+ * popular users more often, as those are the long ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserStorageBenchmark {
+    @Param({"MEMORY", "H2", "H2_CACHED"})
+    private StorageBackend backend;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private StorageBackend.Storages storages;
+    private PowerLawDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        storages = backend.create();
+        dataset = new PowerLawDataset(size);
+        dataset.load(storages.films, storages.users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public User addUser() {
+        return storages.users.addUser(dataset.newUser());
+    }
+
+    @Benchmark
+    public Optional<User> getUser() {
+        return storages.users.getUser(dataset.popularId());
+    }
+
+    @Benchmark
+    public Optional<User> updateUser() {
+        int userId = dataset.randomId();
+        return storages.users.updateUser(userId, dataset.user(userId));
+    }
+
+    @Benchmark
+    public Optional<List<User>> getUserFriends() {
+        return storages.users.getUserFriends(dataset.popularId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return storages.users.getCommonFriends(dataset.randomId(), dataset.popularId());
+    }
+}
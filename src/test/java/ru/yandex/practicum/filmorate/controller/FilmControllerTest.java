@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class FilmControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ReferenceDataRegistry referenceData;
+
+    @Test
+    void filmETag() throws Exception {
+        String content = mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"ETag\",\"description\":\"Film of ETag test\",\"releaseDate\":\"2000-01-01\"," +
+                                 "\"duration\":90,\"mpa\":{\"id\":1}}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Film film = objectMapper.readValue(content, Film.class);
+
+        // Check film is not sent again while its version stays the same
+        String eTag = getETag("/films/" + film.getId());
+        mockMvc.perform(get("/films/" + film.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        // Check update changes version of film
+        film.setDescription("Updated film of ETag test");
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/" + film.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        assertNotEquals(eTag, getETag("/films/" + film.getId()));
+    }
+
+    @Test
+    void referenceDataETags() throws Exception {
+        String genresETag = getETag("/genres");
+        String mpaETag = getETag("/mpa/1");
+        mockMvc.perform(get("/genres").header(HttpHeaders.IF_NONE_MATCH, genresETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/mpa/1").header(HttpHeaders.IF_NONE_MATCH, mpaETag))
+                .andExpect(status().isNotModified());
+
+        // Check reload of genres and ratings changes their ETags
+        referenceData.reload();
+        mockMvc.perform(get("/genres").header(HttpHeaders.IF_NONE_MATCH, genresETag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/mpa/1").header(HttpHeaders.IF_NONE_MATCH, mpaETag))
+                .andExpect(status().isOk());
+    }
+
+    private String getETag(String uri) throws Exception {
+        String eTag = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        return eTag;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.CountingJdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.StorageMetrics;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryBudgetFilterTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate = new CountingJdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:budget;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE numbers (number integer PRIMARY KEY)");
+    }
+
+    @Test
+    void endpointsWithinBudget() throws Exception {
+        // Check requests within budget pass enforced checks and report statements in headers
+        MvcResult created = mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"budget@user.com\",\"login\":\"budget\",\"name\":\"Budget\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(QueryBudgetFilter.QUERY_TIME_HEADER))
+                .andReturn();
+        assertTrue(Integer.parseInt(created.getResponse().getHeader(QueryBudgetFilter.QUERY_COUNT_HEADER)) > 0);
+        User user = objectMapper.readValue(created.getResponse().getContentAsString(), User.class);
+        mockMvc.perform(get("/users/" + user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(QueryBudgetFilter.QUERY_COUNT_HEADER));
+    }
+
+    @Test
+    void overBudget() throws Exception {
+        QueryBudgetFilter filter = new QueryBudgetFilter(true, 5);
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler("twoStatements"));
+                jdbcTemplate.queryForList("SELECT number FROM numbers");
+                jdbcTemplate.queryForList("SELECT number FROM numbers");
+            }
+        };
+
+        // Check request within budget passes
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/numbers"), response, new MockFilterChain(servlet));
+        assertEquals("2", response.getHeader(QueryBudgetFilter.QUERY_COUNT_HEADER));
+
+        // Check request over budget fails
+        servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler("oneStatement"));
+                jdbcTemplate.queryForList("SELECT number FROM numbers");
+                jdbcTemplate.queryForList("SELECT number FROM numbers");
+            }
+        };
+        MockFilterChain chain = new MockFilterChain(servlet);
+        assertThrows(IllegalStateException.class,
+                () -> filter.doFilter(new MockHttpServletRequest("GET", "/numbers"), new MockHttpServletResponse(), chain));
+    }
+
+    @Test
+    void repeatedCalls() {
+        QueryBudgetFilter filter = new QueryBudgetFilter(true, 5);
+        StorageMetrics.Probe probe = new StorageMetrics(new SimpleMeterRegistry()).probe("number", "getNumber");
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                for (int i = 0; i < 5; i++) {
+                    long start = probe.start();
+                    jdbcTemplate.queryForList("SELECT number FROM numbers WHERE number = ?", i);
+                    probe.stop(start);
+                }
+            }
+        };
+
+        // Check storage method querying database in a loop fails request without budget
+        MockFilterChain chain = new MockFilterChain(servlet);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> filter.doFilter(new MockHttpServletRequest("GET", "/numbers"), new MockHttpServletResponse(), chain));
+        assertTrue(e.getMessage().contains("number.getNumber x5"));
+    }
+
+    private static HandlerMethod handler(String name) {
+        try {
+            return new HandlerMethod(new Budgets(), Budgets.class.getDeclaredMethod(name));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    static class Budgets {
+        @QueryBudget(1)
+        void oneStatement() {
+        }
+
+        @QueryBudget(2)
+        void twoStatements() {
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.http.Cookie;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReadYourWritesFilterTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void readsStickAfterWrite() throws Exception {
+        // Check request which wrote sets cookie with time of the write
+        MvcResult created = mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"sticky@user.com\",\"login\":\"sticky\",\"name\":\"Sticky\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Cookie cookie = created.getResponse().getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.isHttpOnly());
+        assertEquals("/", cookie.getPath());
+
+        // Check reads without the cookie go to the read pool and don't set the cookie
+        long readConnections = connections("filmorate-read");
+        MvcResult read = mockMvc.perform(get("/users")).andExpect(status().isOk()).andReturn();
+        assertNull(read.getResponse().getHeader(HttpHeaders.SET_COOKIE));
+        assertTrue(connections("filmorate-read") > readConnections);
+
+        // Check reads with the cookie go to the write pool without renewing the cookie
+        readConnections = connections("filmorate-read");
+        long writeConnections = connections("filmorate-write");
+        MvcResult sticky = mockMvc.perform(get("/users").cookie(cookie)).andExpect(status().isOk()).andReturn();
+        assertNull(sticky.getResponse().getHeader(HttpHeaders.SET_COOKIE));
+        assertEquals(readConnections, connections("filmorate-read"));
+        assertTrue(connections("filmorate-write") > writeConnections);
+    }
+
+    private long connections(String pool) {
+        return meterRegistry.get("hikaricp.connections.usage").tag("pool", pool).timer().count();
+    }
+}
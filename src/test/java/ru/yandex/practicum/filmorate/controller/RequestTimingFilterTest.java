@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.http.slow-request-threshold=0")
+@AutoConfigureMockMvc
+class RequestTimingFilterTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @Test
+    void slowRequests() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"timing@user.com\",\"login\":\"timing\",\"name\":\"Timing\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/-1")).andExpect(status().isNotFound());
+
+        // Check requests are kept latest first with route templates and phases
+        List<SlowRequestLog.SlowRequest> requests = slowRequestLog.getSlowRequests();
+        SlowRequestLog.SlowRequest lookup = requests.get(0);
+        assertEquals("/users/{id}", lookup.getRoute());
+        assertEquals("/users/-1", lookup.getUri());
+        assertEquals(404, lookup.getStatus());
+        SlowRequestLog.SlowRequest created = requests.get(1);
+        assertEquals("/users", created.getRoute());
+        assertTrue(created.getDeserializationMs() > 0);
+        assertTrue(created.getValidationMs() > 0);
+        assertTrue(created.getSerializationMs() > 0);
+        assertTrue(created.getStatements() > 0);
+        assertTrue(created.getTotalMs() >= created.getDeserializationMs() + created.getValidationMs()
+                + created.getServiceMs() + created.getSerializationMs());
+    }
+
+    @Test
+    void ringBuffer() {
+        SlowRequestLog log = new SlowRequestLog(3);
+        for (int i = 0; i < 5; i++) {
+            log.add(new SlowRequestLog.SlowRequest(Instant.now(), "GET", "/films/" + i, "/films/{id}", 200,
+                    1, 0, 0, 1, 0, 0, 0));
+        }
+
+        // Check only the latest requests are kept
+        assertEquals(List.of("/films/4", "/films/3", "/films/2"), log.getSlowRequests().stream()
+                .map(SlowRequestLog.SlowRequest::getUri)
+                .collect(Collectors.toList()));
+    }
+}
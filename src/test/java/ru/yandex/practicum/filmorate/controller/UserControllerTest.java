@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void userAndFriendsETags() throws Exception {
+        User user = createUser("first");
+        User friend = createUser("second");
+
+        // Check user and friends are not sent again while their versions stay the same
+        String userETag = getETag("/users/" + user.getId());
+        String friendsETag = getETag("/users/" + user.getId() + "/friends");
+        mockMvc.perform(get("/users/" + user.getId()).header(HttpHeaders.IF_NONE_MATCH, userETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/users/" + user.getId() + "/friends").header(HttpHeaders.IF_NONE_MATCH, friendsETag))
+                .andExpect(status().isNotModified());
+
+        // Check new friend changes version of friends
+        mockMvc.perform(put("/users/" + user.getId() + "/friends/" + friend.getId())).andExpect(status().isOk());
+        mockMvc.perform(get("/users/" + user.getId() + "/friends").header(HttpHeaders.IF_NONE_MATCH, friendsETag))
+                .andExpect(status().isOk());
+        assertNotEquals(friendsETag, getETag("/users/" + user.getId() + "/friends"));
+
+        // Check update changes version of user
+        user.setName("Updated");
+        mockMvc.perform(put("/users").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/" + user.getId()).header(HttpHeaders.IF_NONE_MATCH, userETag))
+                .andExpect(status().isOk());
+    }
+
+    private User createUser(String login) throws Exception {
+        String content = mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + login + "@etag.com\",\"login\":\"" + login + "etag\",\"name\":\"ETag\"," +
+                                 "\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(content, User.class);
+    }
+
+    private String getETag(String uri) throws Exception {
+        String eTag = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        return eTag;
+    }
+}
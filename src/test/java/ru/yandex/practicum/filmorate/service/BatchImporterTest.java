@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchImporterTest {
+    private final BatchImporter importer = new BatchImporter(new ObjectMapper().findAndRegisterModules(),
+            Validation.buildDefaultValidatorFactory().getValidator(), 2);
+
+    @Test
+    void importAll() throws IOException {
+        UserService service = new UserService(new InMemoryUserStorage());
+        String body = "{\"email\":\"first@user.com\",\"login\":\"first\",\"name\":\"\",\"birthday\":\"1970-01-01\"}\n"
+                + "{\"email\":\"wrong\",\"login\":\"second\",\"name\":\"Second\",\"birthday\":\"1970-01-01\"}\n"
+                + "{\"email\":\"third@user.com\",\"login\":\"third\",\"name\":\"Third\",\"birthday\":\"1970-01-01\"}\n"
+                + "{\"email\":\"fourth@user.com\",\"login\":\"fourth\",\"name\":\"Fourth\",\"birthday\":\"1970-01-01\"}\n"
+                + "{\"email\":";
+
+        ImportReport report = importer.importAll(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                User.class, service::addUsers, service::addUser, User::getId);
+
+        // Check valid items are added in order of input, invalid item is reported and malformed tail aborts import
+        assertEquals(4, report.getReceived());
+        assertEquals(3, report.getImported());
+        assertTrue(report.isAborted());
+        assertEquals(Arrays.asList(1, null, 2, 3), report.getIds());
+        assertEquals(List.of(1, 4), List.of(report.getErrors().get(0).getIndex(), report.getErrors().get(1).getIndex()));
+        assertEquals(List.of("email: Email should be in right format"), report.getErrors().get(0).getMessages());
+        assertEquals("first", service.getUserById(1).getName());
+    }
+
+    @Test
+    void importAllFallsBackToSingleItems() throws IOException {
+        String body = "[{\"email\":\"first@user.com\",\"login\":\"first\",\"name\":\"First\",\"birthday\":\"1970-01-01\"},"
+                + "{\"email\":\"second@user.com\",\"login\":\"second\",\"name\":\"Second\",\"birthday\":\"1970-01-01\"}]";
+
+        ImportReport report = importer.importAll(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                User.class,
+                users -> {
+                    throw new IllegalStateException("Chunk failed");
+                },
+                user -> {
+                    if (user.getLogin().equals("second")) throw new IllegalArgumentException("Broken user");
+                    user.setId(10);
+                    return user;
+                },
+                User::getId);
+
+        // Check failed chunk is added item by item and only broken item is reported
+        assertEquals(2, report.getReceived());
+        assertEquals(1, report.getImported());
+        assertFalse(report.isAborted());
+        assertEquals(Arrays.asList(10, null), report.getIds());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(List.of("Broken user"), report.getErrors().get(0).getMessages());
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmPopularityIndexTest {
+    private FilmStorage filmStorage;
+    private FilmPopularityIndex index;
+
+    @BeforeEach
+    void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.addFilm(createFilm(1, "B", 1));
+        filmStorage.addFilm(createFilm(2, "A", 1));
+        filmStorage.addFilm(createFilm(3, "C", 5));
+        index = new FilmPopularityIndex(filmStorage);
+        index.rebuild();
+    }
+
+    @Test
+    void getTopFilmIds() {
+        // Check films are ordered by likes and then by name
+        Page<Integer> page = index.getTopFilmIds(null, 10);
+        assertEquals(List.of(3, 2, 1), page.getItems());
+        assertNull(page.getNextCursor());
+
+        // Check ranking follows updates
+        index.update(createFilm(1, "B", 7));
+        index.rename(3, "0");
+        assertEquals(List.of(1, 3, 2), index.getTopFilmIds(null, 10).getItems());
+    }
+
+    @Test
+    void updatesOutOfOrder() {
+        // Check update of an older film version doesn't replace like count of a newer one
+        index.update(createFilm(1, "B", 4, 2));
+        index.update(createFilm(1, "B", 6, 1));
+        assertEquals(List.of(3, 1, 2), index.getTopFilmIds(null, 10).getItems());
+    }
+
+    @Test
+    void remove() {
+        // Check removed film leaves the ranking and late updates don't bring it back
+        index.remove(3);
+        index.update(createFilm(3, "C", 6, 1));
+        index.rename(3, "0");
+        assertEquals(List.of(2, 1), index.getTopFilmIds(null, 10).getItems());
+
+        // Check film stays out of ranking after rebuild once removed from storage
+        filmStorage.removeFilm(3);
+        index.rebuild();
+        assertEquals(List.of(2, 1), index.getTopFilmIds(null, 10).getItems());
+    }
+
+    @Test
+    void getTopFilmIdsByPages() {
+        // Check next page starts right after the last film of previous page
+        Page<Integer> first = index.getTopFilmIds(null, 2);
+        assertEquals(List.of(3, 2), first.getItems());
+        assertNotNull(first.getNextCursor());
+
+        Page<Integer> second = index.getTopFilmIds(first.getNextCursor(), 2);
+        assertEquals(List.of(1), second.getItems());
+        assertNull(second.getNextCursor());
+
+        // Check invalid cursor is rejected
+        assertThrows(ResponseStatusException.class, () -> index.getTopFilmIds("not a cursor", 2));
+    }
+
+    private Film createFilm(int id, String name, int likes) {
+        return createFilm(id, name, likes, 0);
+    }
+
+    private Film createFilm(int id, String name, int likes, long version) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription("some description");
+        film.setDuration(120);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        for (int userId = 1; userId <= likes; userId++) film.getUsersLikedIds().add(userId);
+        film.setLikeCount(likes);
+        film.setVersion(version);
+        return film;
+    }
+}
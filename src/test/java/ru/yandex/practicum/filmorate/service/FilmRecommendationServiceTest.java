@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmRecommendationServiceTest {
+    private FilmRecommendationService recommendations;
+
+    @BeforeEach
+    void beforeEach() {
+        FilmStorage filmStorage = new InMemoryFilmStorage();
+        filmStorage.addFilm(createFilm(Set.of(1, 2, 3)));
+        filmStorage.addFilm(createFilm(Set.of(1, 2)));
+        filmStorage.addFilm(createFilm(Set.of(3)));
+        filmStorage.addFilm(createFilm(Set.of(4)));
+        recommendations = new FilmRecommendationService(filmStorage, 2);
+        recommendations.rebuild();
+    }
+
+    @Test
+    void getSimilarFilmIds() {
+        // Check films are ordered by amount of users liked both films
+        assertArrayEquals(new int[] {2, 3}, recommendations.getSimilarFilmIds(1, 10));
+        assertArrayEquals(new int[] {1}, recommendations.getSimilarFilmIds(2, 10));
+        assertArrayEquals(new int[0], recommendations.getSimilarFilmIds(4, 10));
+
+        // Check co-like counts follow new and removed likes
+        recommendations.likeAdded(3, 2);
+        recommendations.likeAdded(4, 3);
+        recommendations.likeAdded(4, 3);
+        assertArrayEquals(new int[] {2, 3}, recommendations.getSimilarFilmIds(1, 10));
+        assertArrayEquals(new int[] {1, 2, 4}, recommendations.getSimilarFilmIds(3, 10));
+        recommendations.likeRemoved(4, 3);
+        assertArrayEquals(new int[] {1, 2}, recommendations.getSimilarFilmIds(3, 10));
+    }
+
+    @Test
+    void getRecommendedFilmIds() {
+        // Check liked films are skipped and the rest is ordered by score
+        assertArrayEquals(new int[] {3}, recommendations.getRecommendedFilmIds(1, 10));
+        assertArrayEquals(new int[] {2}, recommendations.getRecommendedFilmIds(3, 10));
+        assertArrayEquals(new int[0], recommendations.getRecommendedFilmIds(3, 0));
+
+        // Check film liked by more similar users goes first
+        recommendations.likeAdded(5, 4);
+        recommendations.likeAdded(5, 3);
+        recommendations.likeAdded(6, 1);
+        assertArrayEquals(new int[] {2, 3}, recommendations.getRecommendedFilmIds(6, 10));
+        assertArrayEquals(new int[] {2}, recommendations.getRecommendedFilmIds(6, 1));
+        assertArrayEquals(new int[0], recommendations.getRecommendedFilmIds(42, 10));
+    }
+
+    private Film createFilm(Set<Integer> usersLikedIds) {
+        Film film = new Film();
+        film.setName("film name");
+        film.setDescription("some description");
+        film.setDuration(120);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        film.getUsersLikedIds().addAll(usersLikedIds);
+        return film;
+    }
+}
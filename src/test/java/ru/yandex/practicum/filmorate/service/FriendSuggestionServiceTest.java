@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendSuggestionServiceTest {
+    private UserService userService;
+
+    @BeforeEach
+    void beforeEach() {
+        UserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= 5; i++) {
+            User user = new User();
+            user.setName("User" + i);
+            user.setLogin("user" + i);
+            user.setEmail("user" + i + "@user.com");
+            user.setBirthday(LocalDate.of(1970, Month.JANUARY, 1));
+            storage.addUser(user);
+        }
+        storage.saveFriendship(1, 2);
+        storage.saveFriendship(1, 3);
+        storage.saveFriendship(2, 4);
+        storage.saveFriendship(3, 4);
+        storage.saveFriendship(3, 5);
+
+        FriendSuggestionService suggestions = new FriendSuggestionService(storage);
+        suggestions.rebuild();
+        userService = new UserService(storage, suggestions);
+    }
+
+    @Test
+    void showSuggestedFriends() {
+        // Check user with more mutual friends goes first
+        assertEquals(List.of(4, 5), suggestedIds(1, 10));
+        assertEquals(List.of(4), suggestedIds(1, 1));
+
+        // Check new friend is not suggested anymore
+        userService.makeFriends(1, 4);
+        assertEquals(List.of(5), suggestedIds(1, 10));
+
+        // Check removed friend is suggested again
+        userService.removeFriends(1, 4);
+        assertEquals(List.of(4, 5), suggestedIds(1, 10));
+    }
+
+    private List<Integer> suggestedIds(int userId, int count) {
+        return userService.showSuggestedFriends(userId, count).stream().map(User::getId).collect(Collectors.toList());
+    }
+}
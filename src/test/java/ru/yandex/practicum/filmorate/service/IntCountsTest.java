@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntCountsTest {
+
+    @Test
+    void addAndRemove() {
+        // Check random changes give the same counts as a HashMap
+        IntCounts counts = new IntCounts();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = 1 + random.nextInt(500);
+            int delta = random.nextBoolean() ? 1 : -1;
+            counts.add(key, delta);
+            expected.merge(key, delta, Integer::sum);
+            if (expected.get(key) <= 0) expected.remove(key);
+        }
+        assertEquals(expected.size(), counts.size());
+        for (int key = 1; key <= 500; key++) assertEquals(expected.getOrDefault(key, 0), counts.get(key));
+    }
+
+    @Test
+    void top() {
+        // Check keys are ordered by count and then by key, excluded keys are skipped
+        IntCounts counts = new IntCounts();
+        counts.add(7, 2);
+        counts.add(3, 2);
+        counts.add(5, 9);
+        counts.add(1, 1);
+        assertArrayEquals(new int[] {5, 3, 7}, counts.top(3, new int[0]));
+        assertArrayEquals(new int[] {3, 7, 1}, counts.top(10, new int[] {5}));
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeWriteQueueTest {
+    private FilmStorage filmStorage;
+    private FilmPopularityIndex popularityIndex;
+    private MeterRegistry meterRegistry;
+    private LikeWriteQueue queue;
+
+    @BeforeEach
+    void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.addFilm(createFilm("First"));
+        filmStorage.addFilm(createFilm("Second"));
+        popularityIndex = new FilmPopularityIndex(filmStorage);
+        popularityIndex.rebuild();
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new LikeWriteQueue(filmStorage, popularityIndex, null, meterRegistry, true, 2, 1);
+    }
+
+    @Test
+    void flush() {
+        // Check toggled likes are coalesced to their last state
+        queue.put(1, 1, true);
+        queue.put(1, 1, false);
+        queue.put(1, 1, true);
+        queue.put(2, 2, true);
+        queue.put(2, 2, false);
+        assertEquals(2, queue.size());
+        assertEquals(2, meterRegistry.get("filmorate.likes.queue.depth").gauge().value());
+
+        // Check only net changes are written and popularity follows them
+        queue.flush();
+        assertEquals(0, queue.size());
+        assertEquals(Set.of(1), filmStorage.getFilm(1).get().getUsersLikedIds());
+        assertEquals(Set.of(), filmStorage.getFilm(2).get().getUsersLikedIds());
+        assertEquals(List.of(1, 2), popularityIndex.getTopFilmIds(null, 10).getItems());
+        assertEquals(2, meterRegistry.get("filmorate.likes.queue.flush").timer().count());
+    }
+
+    @Test
+    void putToFullQueue() {
+        queue.put(1, 1, true);
+        queue.put(1, 2, true);
+
+        // Check new like is refused, while pending like could still be changed
+        assertThrows(ResponseStatusException.class, () -> queue.put(2, 1, true));
+        queue.put(1, 2, false);
+
+        // Check queue accepts likes again after drain
+        queue.drain();
+        queue.put(2, 1, true);
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void putConcurrently() throws InterruptedException {
+        LikeWriteQueue bounded = new LikeWriteQueue(filmStorage, popularityIndex, null, meterRegistry, true, 100, 1000);
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int userId = thread + 1;
+            executor.execute(() -> {
+                for (int filmId = 1; filmId <= 100; filmId++) {
+                    try {
+                        bounded.put(userId, filmId, true);
+                        accepted.incrementAndGet();
+                    } catch (ResponseStatusException e) {
+                        // Queue is full
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Check concurrent puts don't take the queue past its capacity
+        assertEquals(100, accepted.get());
+        assertEquals(100, bounded.size());
+
+        // Check written changes free their slots
+        bounded.flush();
+        bounded.put(9, 1, true);
+        assertEquals(1, bounded.size());
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("some description");
+        film.setDuration(120);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        return film;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingFilmStorageTest {
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final CountDownLatch updated = new CountDownLatch(1);
+    private volatile boolean pauseLoad;
+    private Cache<Integer, Optional<Film>> cache;
+    private FilmStorage storage;
+
+    @BeforeEach
+    void beforeEach() {
+        FilmStorage delegate = new InMemoryFilmStorage() {
+            @Override
+            public Optional<Film> getFilm(int filmId) {
+                Optional<Film> film = super.getFilm(filmId);
+                if (pauseLoad) {
+                    loaded.countDown();
+                    await(updated);
+                }
+                return film;
+            }
+
+            @Override
+            public Optional<Film> updateFilm(int filmId, Film film) {
+                Optional<Film> result = super.updateFilm(filmId, film);
+                updated.countDown();
+                return result;
+            }
+        };
+        cache = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        storage = new CachingFilmStorage(delegate, cache);
+        storage.addFilm(createFilm("First"));
+    }
+
+    @Test
+    void getFilm() {
+        // Check second read is served from cache, missing films are cached too
+        assertEquals("First", storage.getFilm(1).get().getName());
+        assertEquals("First", storage.getFilm(1).get().getName());
+        assertTrue(storage.getFilm(2).isEmpty());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(2, cache.stats().missCount());
+
+        // Check returned film is a copy
+        storage.getFilm(1).get().setName("Changed");
+        assertEquals("First", storage.getFilm(1).get().getName());
+
+        // Check writes invalidate changed films only
+        storage.addFilm(createFilm("Second"));
+        assertEquals("Second", storage.getFilm(2).get().getName());
+        storage.updateFilm(1, createFilm("Updated"));
+        assertEquals("Updated", storage.getFilm(1).get().getName());
+        storage.saveFilmLikes(List.<int[]>of(new int[] {1, 2}), List.of());
+        assertEquals(Set.of(1), storage.getFilm(2).get().getUsersLikedIds());
+        storage.removeFilm(2);
+        assertFalse(storage.containsFilm(2));
+    }
+
+    @Test
+    void updateWhileLoading() throws Exception {
+        // Check film loaded before update is not left in cache after update
+        pauseLoad = true;
+        CompletableFuture<Optional<Film>> read = CompletableFuture.supplyAsync(() -> storage.getFilm(1));
+        await(loaded);
+        pauseLoad = false;
+        storage.updateFilm(1, createFilm("Updated"));
+
+        assertEquals("First", read.get(5, TimeUnit.SECONDS).get().getName());
+        assertEquals("Updated", storage.getFilm(1).get().getName());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("some description");
+        film.setDuration(120);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        return film;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeLogPollerTest {
+    private static Server server;
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:changelog;DB_CLOSE_DELAY=-1";
+        first = startNode(url);
+        second = startNode(url);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        if (first != null) first.close();
+        if (second != null) second.close();
+        server.stop();
+    }
+
+    @Test
+    void poll() {
+        FilmStorage firstFilms = first.getBean("filmStorage", FilmStorage.class);
+        FilmStorage secondFilms = second.getBean("filmStorage", FilmStorage.class);
+        UserStorage firstUsers = first.getBean("userStorage", UserStorage.class);
+        UserStorage secondUsers = second.getBean("userStorage", UserStorage.class);
+        ChangeLogPoller firstPoller = first.getBean(ChangeLogPoller.class);
+
+        // Cache film and user on the first node
+        int filmId = secondFilms.addFilm(createFilm("Original")).getId();
+        int userId = secondUsers.addUser(createUser("original")).getId();
+        assertEquals("Original", firstFilms.getFilm(filmId).get().getName());
+        assertEquals("original", firstUsers.getUser(userId).get().getLogin());
+
+        // Check changes by the second node are seen by the first one after poll only
+        secondFilms.updateFilm(filmId, createFilm("Updated"));
+        secondUsers.updateUser(userId, createUser("updated"));
+        assertEquals("Original", firstFilms.getFilm(filmId).get().getName());
+        firstPoller.poll();
+        assertEquals("Updated", firstFilms.getFilm(filmId).get().getName());
+        assertEquals("updated", firstUsers.getUser(userId).get().getLogin());
+        assertEquals(first.getBean(ChangeLog.class).getLastId(), firstPoller.getOffset());
+
+        // Check removal is seen too
+        secondFilms.removeFilm(filmId);
+        firstPoller.poll();
+        assertTrue(firstFilms.getFilm(filmId).isEmpty());
+    }
+
+    @Test
+    void pollUpdatesInMemoryServices() {
+        FilmStorage secondFilms = second.getBean("filmStorage", FilmStorage.class);
+        UserStorage secondUsers = second.getBean("userStorage", UserStorage.class);
+        ChangeLogPoller firstPoller = first.getBean(ChangeLogPoller.class);
+        FilmPopularityIndex firstIndex = first.getBean(FilmPopularityIndex.class);
+        FilmRecommendationService firstRecommendations = first.getBean(FilmRecommendationService.class);
+        FriendSuggestionService firstSuggestions = first.getBean(FriendSuggestionService.class);
+
+        // Like two films and make friends of three users on the second node
+        Film film = secondFilms.addFilm(createFilm("Liked"));
+        Film otherFilm = secondFilms.addFilm(createFilm("Liked too"));
+        User user = secondUsers.addUser(createUser("liking"));
+        User friend = secondUsers.addUser(createUser("friend"));
+        User friendOfFriend = secondUsers.addUser(createUser("friendoffriend"));
+        secondFilms.saveFilmLike(user, film);
+        secondFilms.saveFilmLike(user, otherFilm);
+        secondUsers.saveFriendship(user.getId(), friend.getId());
+        secondUsers.saveFriendship(friend.getId(), friendOfFriend.getId());
+
+        // Check the first node services see likes and friends after poll
+        firstPoller.poll();
+        assertEquals(List.of(film.getId(), otherFilm.getId()), firstIndex.getTopFilmIds(null, 2).getItems());
+        assertArrayEquals(new int[] {otherFilm.getId()}, firstRecommendations.getSimilarFilmIds(film.getId(), 10));
+        assertArrayEquals(new int[] {friendOfFriend.getId()}, firstSuggestions.getSuggestedFriendIds(user.getId(), 10));
+
+        // Check removals are seen too
+        secondFilms.removeFilmLike(user, otherFilm);
+        secondUsers.removeFriendship(user.getId(), friend.getId());
+        secondFilms.removeFilm(film.getId());
+        firstPoller.poll();
+        assertFalse(firstIndex.getTopFilmIds(null, 100).getItems().contains(film.getId()));
+        assertArrayEquals(new int[0], firstRecommendations.getSimilarFilmIds(otherFilm.getId(), 10));
+        assertArrayEquals(new int[0], firstSuggestions.getSuggestedFriendIds(user.getId(), 10));
+    }
+
+    private static ConfigurableApplicationContext startNode(String url) {
+        // Passed as arguments, as default properties of the builder don't override application properties
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url, "--filmorate.change-log.poll-interval=3600000");
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("some description");
+        film.setDuration(120);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        film.setMpa(new Rating(1, "G"));
+        return film;
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@changelog.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1970, Month.JANUARY, 1));
+        return user;
+    }
+}
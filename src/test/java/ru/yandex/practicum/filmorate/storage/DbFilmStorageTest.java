@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DbFilmStorageTest {
+    @Autowired
+    @Qualifier("dbFilmStorage")
+    private FilmStorage storage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.execute("CREATE TRIGGER count_film_genre_writes AFTER INSERT, UPDATE, DELETE ON film_genres " +
+                             "FOR EACH ROW CALL \"" + WriteCounter.class.getName() + "\"");
+    }
+
+    @AfterEach
+    void afterEach() {
+        jdbcTemplate.execute("DROP TRIGGER count_film_genre_writes");
+    }
+
+    @Test
+    void updateFilmGenres() {
+        int filmId = storage.addFilm(createFilm(1, 2)).getId();
+        List<Map<String, Object>> rows = getGenreRows(filmId);
+
+        // Check re-sending an unchanged film keeps its genre rows and writes none of them
+        WriteCounter.WRITES.set(0);
+        storage.updateFilm(filmId, createFilm(2, 1));
+        assertEquals(0, WriteCounter.WRITES.get());
+        assertEquals(rows, getGenreRows(filmId));
+
+        // Check only changed genres are deleted and inserted
+        Film updated = storage.updateFilm(filmId, createFilm(2, 3)).get();
+        assertEquals(2, WriteCounter.WRITES.get());
+        assertEquals(List.of(2, 3), updated.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        List<Map<String, Object>> updatedRows = getGenreRows(filmId);
+        assertEquals(2, updatedRows.size());
+        assertEquals(rows.get(1), updatedRows.get(0));
+
+        // Check all genres are deleted without genres in request
+        storage.updateFilm(filmId, createFilm());
+        assertTrue(getGenreRows(filmId).isEmpty());
+        storage.removeFilm(filmId);
+    }
+
+    private List<Map<String, Object>> getGenreRows(int filmId) {
+        String sqlQuery = "SELECT _ROWID_, genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id";
+        return jdbcTemplate.queryForList(sqlQuery, filmId);
+    }
+
+    private static Film createFilm(int... genreIds) {
+        Film film = new Film();
+        film.setName("film name");
+        film.setDescription("some description");
+        film.setDuration(180);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        film.setMpa(new Rating(1, null));
+        film.setGenres(new LinkedHashSet<>());
+        for (int genreId : genreIds) film.getGenres().add(new Genre(genreId, null));
+        return film;
+    }
+
+    /**
+     * Trigger counting rows written to a table.
+     */
+    public static class WriteCounter implements Trigger {
+        private static final AtomicInteger WRITES = new AtomicInteger();
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            WRITES.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+}
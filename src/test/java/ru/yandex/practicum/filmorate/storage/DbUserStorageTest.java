@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.time.Month;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DbUserStorageTest {
+    @Autowired
+    @Qualifier("dbUserStorage")
+    private UserStorage userStorage;
+    @Autowired
+    @Qualifier("dbFilmStorage")
+    private FilmStorage filmStorage;
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Test
+    void removeUsersChangesVersionsOfLikedFilms() {
+        Film film = filmStorage.addFilm(createFilm());
+        User first = userStorage.addUser(createUser("first"));
+        User second = userStorage.addUser(createUser("second"));
+        filmStorage.saveFilmLike(first, film);
+        filmStorage.saveFilmLike(second, film);
+
+        // Check removal of user who liked film changes version of film and logs its change
+        long version = filmStorage.getFilmVersion(film.getId()).get();
+        long lastId = changeLog.getLastId();
+        userStorage.removeUser(first.getId());
+        assertTrue(filmStorage.getFilmVersion(film.getId()).get() > version);
+        assertTrue(changeLog.getEntriesAfter(lastId, 100).stream().anyMatch(e ->
+                e.getEntity() == ChangeLog.Entity.FILM && e.getEntityId() == film.getId()));
+
+        // Check removal of all users does the same
+        version = filmStorage.getFilmVersion(film.getId()).get();
+        lastId = changeLog.getLastId();
+        userStorage.removeAll();
+        assertEquals(0, filmStorage.getFilm(film.getId()).get().getLikeCount());
+        assertTrue(filmStorage.getFilmVersion(film.getId()).get() > version);
+        assertTrue(changeLog.getEntriesAfter(lastId, 100).stream().anyMatch(e ->
+                e.getEntity() == ChangeLog.Entity.FILM && e.getEntityId() == film.getId()));
+        filmStorage.removeFilm(film.getId());
+    }
+
+    private static Film createFilm() {
+        Film film = new Film();
+        film.setName("film name");
+        film.setDescription("some description");
+        film.setDuration(180);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        film.setMpa(new Rating(1, null));
+        return film;
+    }
+
+    private static User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@user.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1970, Month.JANUARY, 1));
+        return user;
+    }
+}
@@ -6,6 +6,8 @@ import ru.yandex.practicum.filmorate.model.Film;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -170,9 +172,40 @@ abstract class FilmStorageTest<T extends FilmStorage> {
         // Check list size with limit
         assertEquals(1, storage.getFilms(1, 0).size());
 
+        // Check pages after given ID
+        List<Film> firstPage = storage.getFilmsAfter(0, 1);
+        assertEquals(1, firstPage.size());
+        List<Film> secondPage = storage.getFilmsAfter(firstPage.get(0).getId(), 1);
+        assertEquals(1, secondPage.size());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(0).getId());
+        assertTrue(storage.getFilmsAfter(secondPage.get(0).getId(), 1).isEmpty());
     }
 
     @Test
     void getAllFilms() {
     }
+
+    @Test
+    void forEachFilm() {
+        // Create two films
+        Film film = new Film();
+        film.setName("film name");
+        film.setDescription("some description");
+        film.setDuration(180);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        Film film2 = new Film();
+        film2.setName("second film name");
+        film2.setDescription("second some description");
+        film2.setDuration(181);
+        film2.setReleaseDate(LocalDate.of(2021, Month.JANUARY, 1));
+        storage.addFilm(film);
+        storage.addFilm(film2);
+
+        // Check every film is passed to action in order of IDs
+        List<Film> result = new ArrayList<>();
+        storage.forEachFilm(result::add);
+        assertEquals(2, result.size());
+        assertEquals("film name", result.get(0).getName());
+        assertEquals("second film name", result.get(1).getName());
+    }
 }
@@ -1,7 +1,44 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class InMemoryFilmStorageTest extends FilmStorageTest<InMemoryFilmStorage>{
 
     public InMemoryFilmStorageTest() { this.storage = new InMemoryFilmStorage(); }
 
+    @Test
+    void saveFilmLikeConcurrently() throws InterruptedException {
+        // Create new film
+        Film film = new Film();
+        film.setName("film name");
+        film.setDescription("some description");
+        film.setDuration(180);
+        film.setReleaseDate(LocalDate.of(2020, Month.JANUARY, 1));
+        storage.addFilm(film);
+
+        // Like film from different threads
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 1; i <= 1000; i++) {
+            User user = new User();
+            user.setId(i);
+            executor.execute(() -> storage.saveFilmLike(user, film));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Check no like was lost
+        Film result = storage.getFilm(film.getId()).get();
+        assertEquals(1000, result.countUsersLiked());
+        assertEquals(1000, result.getLikeCount());
+    }
 }
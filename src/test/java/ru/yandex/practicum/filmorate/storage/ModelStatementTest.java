@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelStatementTest {
+    private JdbcTemplate jdbcTemplate;
+    private StatementRegistry statements;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE users (user_id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "user_email varchar(255), user_login varchar(255), user_name varchar(255), user_birthday date, user_version integer DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE films (film_id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "film_name varchar(255), film_description varchar(255), film_release_date date, " +
+                "film_duration integer, film_rating_id integer, film_version integer DEFAULT 0)");
+        statements = new StatementRegistry(jdbcTemplate);
+        statements.validate();
+    }
+
+    @Test
+    void insertAndUpdate() {
+        // Check single and batch inserts return generated keys in order
+        assertEquals(1, statements.userInsert().insert(jdbcTemplate, createUser("first")));
+        List<User> users = List.of(createUser("second"), createUser("third"));
+        statements.userInsert().insertAll(jdbcTemplate, users, User::setId);
+        assertEquals(List.of(2, 3), List.of(users.get(0).getId(), users.get(1).getId()));
+
+        // Check update binds key after model values and reports updated rows
+        assertEquals(1, statements.userUpdate().update(jdbcTemplate, 2, createUser("updated")));
+        assertEquals(0, statements.userUpdate().update(jdbcTemplate, 42, createUser("missing")));
+        assertEquals("updated", jdbcTemplate.queryForObject("SELECT user_login FROM users WHERE user_id = 2", String.class));
+    }
+
+    @Test
+    void updateWithQuestionMarkInLiteral() {
+        // Check key is bound to the last parameter, not to the count of question marks in SQL text
+        ModelStatement<User> update = ModelStatement.update(
+                "UPDATE users SET user_login = ?, user_name = 'who?' WHERE user_id = ?",
+                (stmt, user) -> stmt.setString(1, user.getLogin()));
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            update.validate(connection);
+            return null;
+        });
+        int userId = statements.userInsert().insert(jdbcTemplate, createUser("asking"));
+        assertEquals(1, update.update(jdbcTemplate, userId, createUser("answered")));
+        assertEquals("who?", jdbcTemplate.queryForObject("SELECT user_name FROM users WHERE user_id = ?", String.class, userId));
+    }
+
+    @Test
+    void validate() {
+        // Check statements not matching schema fail validation
+        jdbcTemplate.execute("DROP TABLE films");
+        assertThrows(RuntimeException.class, () -> statements.validate());
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@user.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1970, Month.JANUARY, 1));
+        return user;
+    }
+}
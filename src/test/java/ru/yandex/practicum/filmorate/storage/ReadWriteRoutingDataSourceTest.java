@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRoutingDataSourceTest {
+    private static final String URL = "jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1";
+
+    private SingleConnectionDataSource write;
+    private SingleConnectionDataSource read;
+    private Integer writeSession;
+    private Integer readSession;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readTransaction;
+
+    @BeforeEach
+    void beforeEach() {
+        // Both data sources connect to the same database, each with one connection of its own
+        write = new SingleConnectionDataSource(URL, "sa", "", true);
+        read = new SingleConnectionDataSource(URL, "sa", "", true);
+        writeSession = session(write);
+        readSession = session(read);
+        DataSource dataSource = ReadWriteRoutingDataSource.create(write, read);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE names (name varchar(10))");
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void afterEach() {
+        ReadWriteRoutingDataSource.closeScope();
+        write.destroy();
+        read.destroy();
+    }
+
+    @Test
+    void routing() {
+        assertNotEquals(writeSession, readSession);
+
+        // Check read-only transactions read from the read data source and the rest from the write one
+        assertEquals(readSession, readTransaction.execute(status -> session()));
+        assertEquals(writeSession, writeTransaction.execute(status -> session()));
+        assertEquals(writeSession, session());
+        assertEquals(writeSession, readTransaction.execute(status -> ReadWriteRoutingDataSource.readFromWrite(this::session)));
+
+        // Check rows written through the write data source are read through the read one
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO names VALUES (?)", "written"));
+        assertEquals("written", readTransaction.execute(status ->
+                jdbcTemplate.queryForObject("SELECT name FROM names", String.class)));
+    }
+
+    @Test
+    void readYourWrites() {
+        ReadWriteRoutingDataSource.openScope(false);
+        assertEquals(readSession, readTransaction.execute(status -> session()));
+        assertFalse(ReadWriteRoutingDataSource.isWritten());
+
+        // Check reads of a scope stick to the write data source after its write
+        writeTransaction.execute(status -> session());
+        assertTrue(ReadWriteRoutingDataSource.isWritten());
+        assertEquals(writeSession, readTransaction.execute(status -> session()));
+
+        // Check reads of a sticky scope read from the write data source without writes
+        ReadWriteRoutingDataSource.openScope(true);
+        assertEquals(writeSession, readTransaction.execute(status -> session()));
+        assertFalse(ReadWriteRoutingDataSource.isWritten());
+
+        ReadWriteRoutingDataSource.closeScope();
+        assertEquals(readSession, readTransaction.execute(status -> session()));
+    }
+
+    private Integer session() {
+        return jdbcTemplate.queryForObject("SELECT SESSION_ID()", Integer.class);
+    }
+
+    private static Integer session(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT SESSION_ID()", Integer.class);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedIntArraysTest {
+
+    @Test
+    void insertAndRemove() {
+        // Check values are kept sorted and distinct
+        int[] array = SortedIntArrays.of(Set.of(5, 1, 3));
+        assertArrayEquals(new int[] {1, 3, 5}, array);
+        assertArrayEquals(new int[] {1, 2, 3, 5}, SortedIntArrays.insert(array, 2));
+        assertSame(array, SortedIntArrays.insert(array, 3));
+
+        // Check removing keeps original array unchanged
+        assertArrayEquals(new int[] {1, 5}, SortedIntArrays.remove(array, 3));
+        assertArrayEquals(new int[] {1, 3, 5}, array);
+        assertSame(array, SortedIntArrays.remove(array, 4));
+    }
+
+    @Test
+    void intersect() {
+        // Check only common values are left
+        assertArrayEquals(new int[] {3, 7}, SortedIntArrays.intersect(new int[] {1, 3, 5, 7}, new int[] {2, 3, 7, 9}));
+        assertArrayEquals(new int[0], SortedIntArrays.intersect(new int[] {1, 2}, new int[0]));
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageMetricsTest {
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate = new CountingJdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE numbers (number integer PRIMARY KEY)");
+    }
+
+    @Test
+    void countStatementsAndRows() {
+        QueryCounter counter = QueryCounter.current();
+        counter.mark();
+
+        // Check batch is one statement and rows of lists, single values and row handlers are counted
+        jdbcTemplate.batchUpdate("INSERT INTO numbers VALUES (?)", List.of(new Object[]{1}, new Object[]{2}, new Object[]{3}));
+        assertEquals(3, jdbcTemplate.queryForList("SELECT number FROM numbers", Integer.class).size());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM numbers", Integer.class));
+        jdbcTemplate.query("SELECT number FROM numbers WHERE number > ?", rs -> { }, 1);
+        assertEquals(4, counter.getStatementsSinceMark());
+        assertEquals(6, counter.getRowsSinceMark());
+
+        // Check nested mark measures only its own work
+        counter.mark();
+        jdbcTemplate.queryForList("SELECT number FROM numbers WHERE number = 1");
+        assertEquals(1, counter.getStatementsSinceMark());
+        assertEquals(1, counter.getRowsSinceMark());
+        counter.unmark();
+        assertEquals(5, counter.getStatementsSinceMark());
+        counter.unmark();
+    }
+
+    @Test
+    void recordStorageCalls() {
+        StorageMetrics metrics = new StorageMetrics(new SimpleMeterRegistry());
+        UserStorage users = new InstrumentedUserStorage(new InMemoryUserStorage(), metrics);
+        User user = new User();
+        user.setEmail("user@user.com");
+        user.setLogin("user");
+        user.setName("user");
+        user.setBirthday(LocalDate.of(1970, Month.JANUARY, 1));
+        users.addUser(user);
+        users.getUser(user.getId());
+        users.getUser(user.getId());
+
+        // Check calls are recorded per method and shown by endpoint
+        Map<String, StorageMetricsEndpoint.MethodStats> stats = new StorageMetricsEndpoint(metrics).methods();
+        assertEquals(List.of("user.addUser", "user.getUser"), List.copyOf(stats.keySet()));
+        assertEquals(2, stats.get("user.getUser").getCalls());
+        assertEquals(0, stats.get("user.getUser").getMaxStatements());
+        assertTrue(stats.get("user.getUser").getPercentilesMs().containsKey("p99.9"));
+    }
+}
@@ -6,6 +6,7 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -169,9 +170,53 @@ abstract class UserStorageTest<T extends UserStorage> {
         assertEquals(2, storage.getUsers(5,0).size());
         assertEquals(1, storage.getUsers(5, 1).size());
         assertEquals(1, storage.getUsers(1, 0).size());
+
+        // Check pages after given ID
+        List<User> firstPage = storage.getUsersAfter(0, 1);
+        assertEquals(1, firstPage.size());
+        List<User> secondPage = storage.getUsersAfter(firstPage.get(0).getId(), 1);
+        assertEquals(1, secondPage.size());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(0).getId());
+        assertTrue(storage.getUsersAfter(secondPage.get(0).getId(), 1).isEmpty());
     }
 
     @Test
     void getAllUsers() {
     }
+
+    @Test
+    void getVersions() {
+        // Create two users
+        User user = new User();
+        user.setName("Testuser");
+        user.setLogin("testuser");
+        user.setEmail("test@user.com");
+        user.setBirthday(LocalDate.of(1970, Month.JANUARY, 1));
+        User user2 = new User();
+        user2.setName("Seconduser");
+        user2.setLogin("seconduser");
+        user2.setEmail("second@user.com");
+        user2.setBirthday(LocalDate.of(1980, Month.JANUARY, 1));
+        storage.addUser(user);
+        storage.addUser(user2);
+
+        // Unknown user has no version
+        assertEquals(Optional.empty(), storage.getUserVersion(42));
+        assertEquals(Optional.empty(), storage.getFriendsVersion(42));
+
+        // Check friendship changes versions of user and its friends list
+        long userVersion = storage.getUserVersion(user.getId()).get();
+        long friendsVersion = storage.getFriendsVersion(user.getId()).get();
+        storage.saveFriendship(user.getId(), user2.getId());
+        assertNotEquals(userVersion, storage.getUserVersion(user.getId()).get());
+        assertNotEquals(friendsVersion, storage.getFriendsVersion(user.getId()).get());
+
+        // Check change of friend changes friends list version only
+        userVersion = storage.getUserVersion(user.getId()).get();
+        friendsVersion = storage.getFriendsVersion(user.getId()).get();
+        user2.setName("Renamed");
+        storage.updateUser(user2.getId(), user2);
+        assertEquals(userVersion, storage.getUserVersion(user.getId()).get());
+        assertNotEquals(friendsVersion, storage.getFriendsVersion(user.getId()).get());
+    }
 }